@@ -19,7 +19,7 @@ import CardDetail from "./src/screens/CardDetail";
 import Trash from "./src/screens/Trash";
 import CreateCard from "./src/screens/CreateCard";
 import { initDb } from "./src/db";
-import { ensureSeed, startAutoTopUp, topUpIfLow, stopAutoTopUp } from "./src/repo/CardRepository";
+import { ensureSeed, startAutoTopUp, syncDeck, topUpIfLow, stopAutoTopUp } from "./src/repo/CardRepository";
 
 const Stack = createNativeStackNavigator();
 
@@ -28,6 +28,7 @@ export default function App() {
     (async () => {
       await initDb();
       await ensureSeed();
+      await syncDeck();
       await topUpIfLow();
       startAutoTopUp();
     })();
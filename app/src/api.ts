@@ -14,6 +14,23 @@ export async function drawCards(params: {
   return res.json();
 }
 
+export type SyncPage = { cards: Card[]; watermark: string | null; more: boolean };
+
+/** Cards added to a deck after `since` (the watermark of the previous page), oldest first. */
+export async function syncCards(params: {
+  lang: string;
+  category: string;
+  difficulty: Difficulty;
+  since?: string | null;
+  count?: number;
+}): Promise<SyncPage> {
+  const { since, ...rest } = params;
+  const q = new URLSearchParams({ ...(rest as any), ...(since ? { since } : {}) }).toString();
+  const res = await fetch(`${BASE}/api/cards/sync?${q}`);
+  if (!res.ok) throw new Error(`sync failed: ${res.status}`);
+  return res.json();
+}
+
 // Optional: use when you want to actively top-up the server stock.
 export async function downloadCards(params: {
   lang: string;
@@ -48,6 +48,14 @@ export function initDb(): Promise<void> {
         card_id TEXT NOT NULL,
         word TEXT NOT NULL
       );
+
+      CREATE TABLE IF NOT EXISTS sync_state(
+        language TEXT NOT NULL,
+        category TEXT NOT NULL,
+        difficulty TEXT NOT NULL,
+        watermark TEXT NOT NULL,
+        PRIMARY KEY (language, category, difficulty)
+      );
     `);
 
     await ensureCardsNormTargetColumn(db);
@@ -166,6 +174,33 @@ export async function getCount(
   return row?.c ?? 0;
 }
 
+/** Watermark of the last server card synced into a bucket, or null before the first sync. */
+export async function getSyncWatermark(
+  lang: string,
+  category: string,
+  difficulty: Difficulty
+): Promise<string | null> {
+  await initDb();
+  const row = await requireDb().getFirstAsync<{ watermark: string }>(
+    'SELECT watermark FROM sync_state WHERE language=? AND category=? AND difficulty=?',
+    [lang, category, difficulty]
+  );
+  return row?.watermark ?? null;
+}
+
+export async function setSyncWatermark(
+  lang: string,
+  category: string,
+  difficulty: Difficulty,
+  watermark: string
+): Promise<void> {
+  await initDb();
+  await requireDb().runAsync(
+    'INSERT OR REPLACE INTO sync_state(language, category, difficulty, watermark) VALUES(?,?,?,?)',
+    [lang, category, difficulty, watermark]
+  );
+}
+
 /**
  * Insert cards from server. Cards are deduplicated by normalized target within
  * the same language/category/difficulty bucket. Existing rows are updated and
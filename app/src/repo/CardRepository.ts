@@ -1,5 +1,5 @@
-import { downloadCards } from '../api';
-import { getCount, insertCards, drawLocal } from '../db';
+import { downloadCards, syncCards } from '../api';
+import { getCount, insertCards, drawLocal, getSyncWatermark, setSyncWatermark } from '../db';
 import type { Card, Difficulty } from '../types';
 import seed from '../../assets/seed/de-CH_family_medium.json';
 import { useGame } from '../store/game';
@@ -12,6 +12,7 @@ const DEFAULT_BUCKET: Bucket = { lang: 'de-CH', category: 'family', difficulty:
 // Local cache policy
 const THRESHOLD = 30;      // if local stock < THRESHOLD, top-up
 const TOPUP_SIZE = 50;     // how many to request per top-up
+const SYNC_PAGE = 200;     // cards per /sync page
 
 // Auto top-up policy (session-aware)
 const RESERVE = 40;        // if (localCount - usedTargets.size) <= RESERVE → auto top-up
@@ -29,6 +30,27 @@ export async function ensureSeed(bucket: Bucket = DEFAULT_BUCKET) {
   }
 }
 
+/**
+ * Pull the cards added to the server deck since the last sync. Only the change set is
+ * transferred; the watermark is stored after every page so an interrupted sync resumes.
+ */
+export async function syncDeck(bucket: Bucket = DEFAULT_BUCKET) {
+  try {
+    let since = await getSyncWatermark(bucket.lang, bucket.category, bucket.difficulty);
+    for (;;) {
+      const page = await syncCards({ ...bucket, since, count: SYNC_PAGE });
+      await insertCards(page.cards);
+      if (page.watermark && page.watermark !== since) {
+        since = page.watermark;
+        await setSyncWatermark(bucket.lang, bucket.category, bucket.difficulty, since);
+      }
+      if (!page.more) break;
+    }
+  } catch (e) {
+    console.log('Sync failed (continuing offline):', String(e));
+  }
+}
+
 /**
  * Top up local cache if it's low.
  * Now uses the server's "download" operation to GENERATE new cards,
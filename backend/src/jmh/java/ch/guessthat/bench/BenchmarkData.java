@@ -0,0 +1,33 @@
+package ch.guessthat.bench;
+
+import ch.guessthat.util.TextFixtures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/** Deterministic synthetic inputs shared by the benchmarks, built from {@link TextFixtures#seedWords()}. */
+public final class BenchmarkData {
+    private static final List<String> PROFANE = List.of("arsch", "scheisse", "fick");
+
+    private BenchmarkData() {}
+
+    /** A model-like batch: ~10% duplicates, 5% stem violations, 2% profanity, 2% wrong language. */
+    public static CardBatch cardBatch(int size) {
+        var random = new SplittableRandom(42);
+        List<String> words = TextFixtures.seedWords();
+        List<CardDto> cards = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String target = (i % 10 == 9 ? "Ziel" + (i - 1) : "Ziel" + i) + words.get(random.nextInt(words.size()));
+            List<String> forbidden = new ArrayList<>(6);
+            for (int w = 0; w < 6; w++) forbidden.add(words.get(random.nextInt(words.size())));
+            if (i % 20 == 3) forbidden.set(0, target.substring(0, Math.min(6, target.length())));
+            if (i % 50 == 7) forbidden.set(1, "Super" + PROFANE.get(random.nextInt(PROFANE.size())));
+            String language = i % 50 == 11 ? "en-US" : "de-CH";
+            cards.add(new CardDto(null, language, "family", "medium", target, forbidden));
+        }
+        return new CardBatch(cards);
+    }
+}
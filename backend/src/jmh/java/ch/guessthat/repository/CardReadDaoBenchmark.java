@@ -0,0 +1,131 @@
+package ch.guessthat.repository;
+
+import ch.guessthat.model.CardEntity;
+import ch.guessthat.util.CardCursor;
+import ch.guessthat.util.TextNorm;
+import ch.guessthat.util.Uuids;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * Draw queries of {@link CardReadDao} against an in-memory H2 in MySQL mode. The absolute numbers
+ * are not MySQL's, but the shape is: keyset pages stay flat with depth while offset pages grow,
+ * and the single joined statement is compared with the former two-query read.
+ * Decks of a million cards can be requested with {@code -p deckSize=1000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CardReadDaoBenchmark {
+    private static final String LANG = "de-CH";
+    private static final String CAT = "family";
+    private static final String DIFF = "medium";
+    private static final int INSERT_CHUNK = 1000;
+
+    @Param({"1000", "100000"})
+    int deckSize;
+
+    @Param({"50", "500", "5000"})
+    int pageSize;
+
+    private DriverManagerDataSource dataSource;
+    private NamedParameterJdbcTemplate jdbc;
+    private CardReadDao reader;
+    private int deepOffset;
+    private CardCursor deepCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bench-" + deckSize + "-" + pageSize + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/h2/schema.sql")).execute(dataSource);
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        reader = new CardReadDao(jdbc, new SimpleMeterRegistry());
+
+        var writer = new CardWriteDao(jdbc);
+        var random = new SplittableRandom(7);
+        List<CardEntity> chunk = new ArrayList<>(INSERT_CHUNK);
+        for (int i = 0; i < deckSize; i++) {
+            String target = "Ziel " + i;
+            List<String> forbidden = new ArrayList<>(6);
+            for (int w = 0; w < 6; w++) forbidden.add("Wort " + random.nextInt(50_000));
+            chunk.add(CardEntity.builder()
+                    .id(Uuids.v7())
+                    .language(LANG).category(CAT).difficulty(DIFF)
+                    .target(target)
+                    .normTarget(TextNorm.normLower(target))
+                    .randKey(random.nextDouble())
+                    .forbidden(forbidden)
+                    .build());
+            if (chunk.size() == INSERT_CHUNK || i == deckSize - 1) {
+                writer.insertCardsIfNew(chunk);
+                chunk = new ArrayList<>(INSERT_CHUNK);
+            }
+        }
+
+        deepOffset = Math.max(0, deckSize - pageSize);
+        deepCursor = jdbc.queryForObject("""
+                SELECT c.created_at, c.id FROM cards c
+                ORDER BY c.created_at DESC, c.id DESC
+                LIMIT 1 OFFSET %d
+                """.formatted(Math.max(0, deepOffset - 1)), Map.of(),
+                (rs, n) -> new CardCursor(rs.getTimestamp(1).toInstant(), Uuids.fromBytes(rs.getBytes(2)).toString()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbc.getJdbcTemplate().execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<DeckEntry> firstPage() {
+        return reader.drawLatestAfter(LANG, CAT, DIFF, pageSize, null);
+    }
+
+    @Benchmark
+    public List<DeckEntry> deepKeysetPage() {
+        return reader.drawLatestAfter(LANG, CAT, DIFF, pageSize, deepCursor);
+    }
+
+    @Benchmark
+    public List<CardDto> deepOffsetPage() {
+        return reader.drawLatest(LANG, CAT, DIFF, pageSize, deepOffset);
+    }
+
+    @Benchmark
+    public List<CardDto> randomDraw() {
+        return reader.drawRandom(LANG, CAT, DIFF, pageSize);
+    }
+
+    /** The pre-join read: one query for the page, a second one for its forbidden words. */
+    @Benchmark
+    public List<CardDto> twoQueryFirstPage() {
+        var params = new MapSqlParameterSource()
+                .addValue("lang", LANG).addValue("cat", CAT).addValue("diff", DIFF);
+        List<String[]> rows = jdbc.query("""
+                SELECT c.id, c.target FROM cards c
+                WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff
+                ORDER BY c.created_at DESC, c.id DESC
+                LIMIT %d
+                """.formatted(pageSize), params, (rs, n) -> new String[]{Uuids.fromBytes(rs.getBytes(1)).toString(), rs.getString(2)});
+        if (rows.isEmpty()) return List.of();
+
+        Map<String, List<String>> forbidden = new HashMap<>();
+        jdbc.query("SELECT cf.card_id, cf.word FROM card_forbidden cf WHERE cf.card_id IN (:ids)",
+                Map.of("ids", rows.stream().map(r -> Uuids.toBytes(r[0])).toList()),
+                rs -> { forbidden.computeIfAbsent(Uuids.fromBytes(rs.getBytes(1)).toString(), k -> new ArrayList<>()).add(rs.getString(2)); });
+        return rows.stream()
+                .map(r -> new CardDto(r[0], LANG, CAT, DIFF, r[1], forbidden.getOrDefault(r[0], List.of())))
+                .toList();
+    }
+}
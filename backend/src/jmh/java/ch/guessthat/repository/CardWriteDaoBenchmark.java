@@ -0,0 +1,88 @@
+package ch.guessthat.repository;
+
+import ch.guessthat.model.CardEntity;
+import ch.guessthat.util.TextNorm;
+import ch.guessthat.util.Uuids;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch insert throughput of {@link CardWriteDao} into a pre-filled deck, with random UUIDv4 ids
+ * against time-ordered UUIDv7 ids, on H2 in MySQL mode. Decks of several million cards can be
+ * requested with {@code -p deckSize=3000000}.
+ * <p>
+ * Index sizes are only meaningful on MySQL; after loading a deck there, compare
+ * {@code SELECT index_name, stat_value * @@innodb_page_size FROM mysql.innodb_index_stats
+ * WHERE table_name = 'cards' AND stat_name = 'size'} before and after the V6 migration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CardWriteDaoBenchmark {
+    private static final String LANG = "de-CH";
+    private static final String CAT = "family";
+    private static final String DIFF = "medium";
+
+    @Param({"100000", "1000000"})
+    int deckSize;
+
+    @Param({"v4", "v7"})
+    String ids;
+
+    @Param({"1000"})
+    int batchSize;
+
+    private NamedParameterJdbcTemplate jdbc;
+    private CardWriteDao writer;
+    private SplittableRandom random;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:write-" + deckSize + "-" + ids + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/h2/schema.sql")).execute(dataSource);
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        writer = new CardWriteDao(jdbc);
+        random = new SplittableRandom(7);
+        while (next < deckSize) writer.insertCardsIfNew(batch());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbc.getJdbcTemplate().execute("SHUTDOWN");
+    }
+
+    /** One multi-row insert of {@code batchSize} new cards; the score is batches per second. */
+    @Benchmark
+    public List<CardEntity> insertBatch() {
+        return writer.insertCardsIfNew(batch());
+    }
+
+    private List<CardEntity> batch() {
+        List<CardEntity> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            String target = "Ziel " + next++;
+            List<String> forbidden = new ArrayList<>(6);
+            for (int w = 0; w < 6; w++) forbidden.add("Wort " + random.nextInt(50_000));
+            batch.add(CardEntity.builder()
+                    .id("v7".equals(ids) ? Uuids.v7() : UUID.randomUUID())
+                    .language(LANG).category(CAT).difficulty(DIFF)
+                    .target(target)
+                    .normTarget(TextNorm.normLower(target))
+                    .randKey(random.nextDouble())
+                    .forbidden(forbidden)
+                    .build());
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,36 @@
+package ch.guessthat.services;
+
+import ch.guessthat.bench.BenchmarkData;
+import ch.guessthat.config.OpenAIProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/** The per-card filter chain of {@link CardService#getOrGenerate} over one model response. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilterChainBenchmark {
+
+    @Param({"150", "1000", "10000"})
+    int cards;
+
+    private CardService service;
+    private CardBatch batch;
+
+    @Setup
+    public void setUp() {
+        service = new CardService(null, new OpenAIProperties(), null, null, null, null, new SimpleMeterRegistry());
+        batch = BenchmarkData.cardBatch(cards);
+    }
+
+    @Benchmark
+    public List<CardDto> filter() {
+        return service.filter(batch, "de-CH", new HashSet<>());
+    }
+}
@@ -0,0 +1,49 @@
+package ch.guessthat.util;
+
+import ch.guessthat.bench.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * {@link SafetyFilters} over 1,000 synthetic cards. {@code regexProfanity} is the former
+ * case-insensitive alternation over the whole list, kept as the baseline for the Aho-Corasick matcher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SafetyFiltersBenchmark {
+
+    private List<CardDto> cards;
+    private Pattern regex;
+
+    @Setup
+    public void setUp() {
+        cards = BenchmarkData.cardBatch(1000).cards();
+        regex = TextFixtures.alternationRegex(TextFixtures.profanityList());
+    }
+
+    @Benchmark
+    public void isFamilyFriendly(Blackhole bh) {
+        for (CardDto card : cards) bh.consume(SafetyFilters.isFamilyFriendly(card));
+    }
+
+    @Benchmark
+    public void regexProfanity(Blackhole bh) {
+        for (CardDto card : cards) {
+            boolean clean = !regex.matcher(card.target()).find();
+            for (String word : card.forbidden()) clean &= !regex.matcher(word).find();
+            bh.consume(clean);
+        }
+    }
+
+    @Benchmark
+    public void passesStemExclusion(Blackhole bh) {
+        for (CardDto card : cards) bh.consume(SafetyFilters.passesStemExclusion(card));
+    }
+}
@@ -0,0 +1,51 @@
+package ch.guessthat.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TextNorm#normLower} over the seed corpus (as stored, upper-cased and with a compatibility
+ * character) against the former NFKC + replaceAll implementation. The setup fails if the two
+ * ever disagree, so every run also re-proves identical output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextNormBenchmark {
+
+    @Param({"0", "10000"})
+    int memoSize;
+
+    private List<String> words;
+
+    @Setup
+    public void setUp() {
+        words = new ArrayList<>();
+        for (String word : TextFixtures.seedWords()) {
+            words.add(word);
+            words.add(word.toUpperCase(Locale.ROOT));
+            words.add(" ﬁ" + word + " ");
+        }
+        TextNorm.setMemoCapacity(memoSize);
+        for (String word : words) {
+            if (!TextNorm.normLower(word).equals(TextFixtures.legacyNormLower(word))) {
+                throw new IllegalStateException("TextNorm differs from legacy implementation for '" + word + "'");
+            }
+        }
+    }
+
+    @Benchmark
+    public void normLower(Blackhole bh) {
+        for (String word : words) bh.consume(TextNorm.normLower(word));
+    }
+
+    @Benchmark
+    public void legacyNormLower(Blackhole bh) {
+        for (String word : words) bh.consume(TextFixtures.legacyNormLower(word));
+    }
+}
@@ -2,12 +2,14 @@ package ch.guessthat;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.io.IOException;
 
 import static ch.guessthat.util.ConfigLoader.loadConfig;
 
 @SpringBootApplication
+@EnableScheduling
 public class GuessThatApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,80 @@
+package ch.guessthat.config;
+
+import ch.guessthat.services.CardBulkService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static ch.guessthat.records.RecordManager.ImportResult;
+
+/**
+ * {@code /actuator/cardimport}: on POST with {@code {"file": "..."}}, imports a JSON array or NDJSON
+ * card file ({@code .gz} is decompressed) from {@code app.config.import.dir}. It has no authentication
+ * and is only served on the management port ({@code management.server.*}, loopback by default); only
+ * bare file names inside that directory are accepted in any case.
+ * Files listed in {@code app.config.import.seed-files} (operator configuration, any path) are
+ * imported once the application is ready; cards that already exist are skipped, so seeding on
+ * every start is harmless.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "cardimport")
+@RequiredArgsConstructor
+public class CardImportEndpoint {
+    private final CardBulkService cardBulkService;
+
+    @Value("${app.config.import.seed-files:}")
+    private List<String> seedFiles;
+
+    @Value("${app.config.import.dir}")
+    private Path importDir;
+
+    @EventListener(ApplicationReadyEvent.class)
+    void importSeedFiles() throws IOException {
+        for (String file : seedFiles) {
+            if (!file.isBlank()) importPath(Path.of(file.trim()));
+        }
+    }
+
+    @WriteOperation
+    public ImportResult importFile(String file) throws IOException {
+        return importPath(resolve(file));
+    }
+
+    /** {@code file} as a bare name inside the import directory; anything else is rejected. */
+    Path resolve(String file) {
+        Path dir = importDir.toAbsolutePath().normalize();
+        Path name = Path.of(file);
+        Path path = dir.resolve(name).normalize();
+        if (name.isAbsolute() || name.getNameCount() != 1 || !dir.equals(path.getParent()) || Files.isSymbolicLink(path)) {
+            throw new InvalidEndpointRequestException("Import file must be a file name inside " + dir, "Invalid import file");
+        }
+        return path;
+    }
+
+    private ImportResult importPath(Path path) throws IOException {
+        log.info("IMPORT file={} bytes={}", path, Files.size(path));
+        try (InputStream in = open(path)) {
+            return cardBulkService.importCards(in);
+        }
+    }
+
+    private static InputStream open(Path path) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+        return path.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+}
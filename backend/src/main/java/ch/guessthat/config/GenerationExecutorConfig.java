@@ -0,0 +1,31 @@
+package ch.guessthat.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class GenerationExecutorConfig {
+
+    /**
+     * Runs OpenAI generation off the request threads. Virtual threads keep blocked calls cheap,
+     * the fixed pool size caps concurrent generations and the bounded queue rejects work once
+     * it is full so callers can answer with 429 instead of piling up.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor generationExecutor(
+            @Value("${app.config.generation.concurrency}") int concurrency,
+            @Value("${app.config.generation.queue-depth}") int queueDepth) {
+        return new ThreadPoolExecutor(
+                concurrency,
+                concurrency,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth),
+                Thread.ofVirtual().name("gen-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
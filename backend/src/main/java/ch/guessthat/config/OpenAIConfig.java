@@ -4,6 +4,7 @@ import com.openai.client.OpenAIClient;
 import com.openai.client.okhttp.OpenAIOkHttpClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 
 import java.time.Duration;
 
@@ -11,10 +12,13 @@ import java.time.Duration;
 public class OpenAIConfig {
     @Bean
     public OpenAIClient openAIClient(OpenAIProperties props) {
-        return OpenAIOkHttpClient.builder()
+        OpenAIOkHttpClient.Builder builder = OpenAIOkHttpClient.builder()
                 .fromEnv()
                 .timeout(Duration.ofSeconds(props.getTimeoutSeconds()))
-                .maxRetries(3)
-                .build();
+                .maxRetries(3);
+        // openai.baseUrl / openai.apiKey win over the environment, e.g. to point at a local fake
+        if (StringUtils.hasText(props.getBaseUrl())) builder.baseUrl(props.getBaseUrl());
+        if (StringUtils.hasText(props.getApiKey())) builder.apiKey(props.getApiKey());
+        return builder.build();
     }
 }
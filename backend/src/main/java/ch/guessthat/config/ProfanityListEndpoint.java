@@ -0,0 +1,54 @@
+package ch.guessthat.config;
+
+import ch.guessthat.util.SafetyFilters;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static ch.guessthat.util.ConfigLoader.loadConfig;
+
+/**
+ * {@code /actuator/profanity}: shows the active pattern count and, on POST, recompiles the
+ * profanity matcher from {@code app.config.profanity-list-file} (or the bundled list) without
+ * a restart. Unauthenticated, so like every actuator endpoint it is only served on the management
+ * port ({@code management.server.*}, loopback by default).
+ */
+@Slf4j
+@Component
+@Endpoint(id = "profanity")
+public class ProfanityListEndpoint {
+
+    @Value("${app.config.profanity-list-file:}")
+    private String profanityListFile;
+
+    @PostConstruct
+    void loadConfiguredList() throws IOException {
+        if (!profanityListFile.isBlank()) reload();
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return Map.of("patterns", SafetyFilters.profanityPatternCount());
+    }
+
+    @WriteOperation
+    public Map<String, Object> reload() throws IOException {
+        String content = profanityListFile.isBlank()
+                ? loadConfig("", "filter_profanity_list.txt")
+                : Files.readString(Path.of(profanityListFile), StandardCharsets.UTF_8);
+        int patterns = SafetyFilters.reloadProfanityList(content);
+        log.info("SAFETY profanity list reloaded source={} patterns={}",
+                profanityListFile.isBlank() ? "classpath" : profanityListFile, patterns);
+        return Map.of("patterns", patterns);
+    }
+}
@@ -0,0 +1,76 @@
+package ch.guessthat.config;
+
+import ch.guessthat.repository.ReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class ReadWriteDataSourceConfig {
+
+    /** The writable database from {@code spring.datasource.*}; Flyway and all writes use it. */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * One read-only pool per URL in {@code app.config.datasource.replicas}. Pools start lazily and
+     * time out quickly so that a replica that is down fails over to the next one instead of
+     * stalling the request; with no replicas configured every read goes to the primary.
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaDataSource replicaDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${app.config.datasource.replicas:}") List<String> urls,
+            @Value("${app.config.datasource.replica-pool-size}") int poolSize,
+            @Value("${app.config.datasource.replica-connection-timeout-ms}") long connectionTimeoutMs,
+            @Value("${app.config.datasource.replica-retry-seconds}") long retrySeconds,
+            @Value("${app.config.datasource.replica-max-lag-seconds}") long maxLagSeconds) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) continue;
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setConnectionTimeout(connectionTimeoutMs);
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricRegistry(meterRegistry);
+            replicas.add(replica);
+        }
+        return new ReplicaDataSource(primaryDataSource, replicas, Duration.ofSeconds(retrySeconds),
+                Duration.ofSeconds(maxLagSeconds), meterRegistry);
+    }
+
+    /**
+     * Defers fetching a physical connection until the first statement, by which time the
+     * transaction manager has marked it read-only or not: read-only transactions go to the
+     * replicas, everything else to the primary.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,106 @@
+package ch.guessthat.config;
+
+import ch.guessthat.repository.ReplicaDataSource;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Read-your-writes for replica reads: after a client's {@code /download} request (plain, streamed
+ * or a job poll) its reads are served from the primary for {@code read-your-writes-seconds}, so
+ * a {@code /draw} right after a download sees the new cards even while the replicas lag behind.
+ * Clients are told apart by the {@value #CLIENT_HEADER} header, or by remote address without it.
+ * <p>
+ * The remote-address fallback is coarse: every client behind one NAT or reverse proxy shares an
+ * address, so a single download pins all of them to the primary for the window. That costs
+ * replica offload, not correctness. Clients behind a proxy should send the header.
+ * <p>
+ * The pin lives in a thread local. {@link PinPropagation} carries it onto the async thread of a
+ * {@code StreamingResponseBody} or {@code Callable} response; work a handler hands to another
+ * executor itself (generation jobs) does not inherit it and must use {@link ReplicaDataSource#onPrimary}.
+ */
+@Component
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor, WebMvcConfigurer {
+    public static final String CLIENT_HEADER = "X-Client-Id";
+    private static final int MAX_CLIENT_ID_LENGTH = 64;
+
+    private final Cache<String, Boolean> recentWriters;
+    private final boolean enabled;
+
+    public ReadYourWritesInterceptor(
+            @Value("${app.config.datasource.read-your-writes-seconds}") long windowSeconds) {
+        this.enabled = windowSeconds > 0;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, windowSeconds)))
+                .build();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (enabled) registry.addInterceptor(this).addPathPatterns("/api/**");
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (enabled) configurer.registerCallableInterceptors(new PinPropagation());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (recentWriters.getIfPresent(client(request)) != null) ReplicaDataSource.pinToPrimary();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReplicaDataSource.clearPin();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaDataSource.clearPin();
+        if (ex == null && response.getStatus() < 400 && request.getRequestURI().startsWith("/api/cards/download")) {
+            recentWriters.put(client(request), Boolean.TRUE);
+        }
+    }
+
+    /** Re-applies the request thread's pin on the thread that runs the async part of the response. */
+    static final class PinPropagation implements CallableProcessingInterceptor {
+        private static final String PINNED = PinPropagation.class.getName() + ".pinned";
+
+        @Override
+        public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+            if (ReplicaDataSource.pinnedToPrimary()) request.setAttribute(PINNED, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            if (request.getAttribute(PINNED, RequestAttributes.SCOPE_REQUEST) != null) ReplicaDataSource.pinToPrimary();
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object result) {
+            ReplicaDataSource.clearPin();
+        }
+    }
+
+    private static String client(HttpServletRequest request) {
+        String id = request.getHeader(CLIENT_HEADER);
+        return StringUtils.hasText(id) && id.length() <= MAX_CLIENT_ID_LENGTH ? "id:" + id : "ip:" + request.getRemoteAddr();
+    }
+}
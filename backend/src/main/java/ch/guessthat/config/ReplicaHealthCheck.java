@@ -0,0 +1,18 @@
+package ch.guessthat.config;
+
+import ch.guessthat.repository.ReplicaDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/** Runs {@link ReplicaDataSource#checkReplicas()} in the background, so reads stop going to a replica that lags or is gone. */
+@Component
+@RequiredArgsConstructor
+public class ReplicaHealthCheck {
+    private final ReplicaDataSource replicaDataSource;
+
+    @Scheduled(fixedDelayString = "${app.config.datasource.replica-check-interval-ms}")
+    void check() {
+        replicaDataSource.checkReplicas();
+    }
+}
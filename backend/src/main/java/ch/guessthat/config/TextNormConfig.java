@@ -0,0 +1,18 @@
+package ch.guessthat.config;
+
+import ch.guessthat.util.TextNorm;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TextNormConfig {
+
+    @Value("${app.config.text-norm.memo-size}")
+    private int memoSize;
+
+    @PostConstruct
+    void configureMemo() {
+        TextNorm.setMemoCapacity(memoSize);
+    }
+}
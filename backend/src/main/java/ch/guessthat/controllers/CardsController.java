@@ -1,15 +1,40 @@
 package ch.guessthat.controllers;
 
-import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.services.CardBulkService;
 import ch.guessthat.services.CardPersistenceService;
 import ch.guessthat.services.CardService;
+import ch.guessthat.services.DeckBundleStore;
+import ch.guessthat.services.DeckBundleStore.DeckBundle;
+import ch.guessthat.services.DeckCache;
+import ch.guessthat.services.DeckSyncService;
+import ch.guessthat.services.DrawSessionService;
+import ch.guessthat.services.GenerationCoalescer;
+import ch.guessthat.services.GenerationJobService;
+import ch.guessthat.services.OpenAiBulkhead;
+import ch.guessthat.util.AcceptEncoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
 
 import static ch.guessthat.records.RecordManager.*;
 
@@ -17,11 +42,26 @@ import static ch.guessthat.records.RecordManager.*;
 @RequestMapping("/api/cards")
 @RequiredArgsConstructor
 @Slf4j
-@CrossOrigin
+@CrossOrigin(exposedHeaders = {CardsController.NEXT_CURSOR_HEADER, HttpHeaders.ETAG})
 public class CardsController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final CardService cardService;
     private final CardPersistenceService cardPersistenceService;
-    private final CardReadDao reader;
+    private final GenerationCoalescer generationCoalescer;
+    private final DeckCache deckCache;
+    private final DeckSyncService deckSyncService;
+    private final DrawSessionService drawSessionService;
+    private final DeckBundleStore deckBundleStore;
+    private final CardBulkService cardBulkService;
+    private final GenerationJobService generationJobService;
+    private final OpenAiBulkhead openAiBulkhead;
+    private final ObjectMapper objectMapper;
 
     @Value("${app.config.max-draw-count}")
     private int maxDrawCount;
@@ -35,11 +75,13 @@ public class CardsController {
     ) {
         try {
             log.info("HTTP /download lang={} cat={} diff={} n={}", lang, category, difficulty, count);
-            List<CardDto> generated = cardService.getOrGenerate(lang, category, difficulty, count);
-            List<CardDto> inserted = cardPersistenceService.storeOnlyNew(generated);
+            GenerationResult result = generationCoalescer.generateAndStore(lang, category, difficulty, count);
             log.info("HTTP /download generated={} inserted={} duplicates={}",
-                    generated.size(), inserted.size(), generated.size() - inserted.size());
-            return ResponseEntity.ok(generated);
+                    result.cards().size(), result.inserted(), result.cards().size() - result.inserted());
+            return ResponseEntity.ok(result.cards());
+        } catch (RejectedExecutionException e) {
+            log.info("HTTP /download REJECTED {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "30").build();
         } catch (Exception e) {
             log.info("HTTP /download ERROR {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -47,24 +89,136 @@ public class CardsController {
 
     }
 
+    /**
+     * Streaming variant of {@link #download}: every card that passes the filters is written as one
+     * NDJSON line as soon as the model has finished it. The cards are stored together once the
+     * model stream has ended (or the client has gone away), in one transaction.
+     */
+    @GetMapping(value = "/download/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> downloadStream(
+            @RequestParam(defaultValue = "de-CH") String lang,
+            @RequestParam(defaultValue = "family") String category,
+            @RequestParam(defaultValue = "medium") String difficulty,
+            @RequestParam(defaultValue = "50") int count
+    ) {
+        log.info("HTTP /download/stream lang={} cat={} diff={} n={}", lang, category, difficulty, count);
+        // taken before the 200 is committed, so a full bulkhead still answers 429 like /download
+        OpenAiBulkhead.Permit permit;
+        try {
+            permit = openAiBulkhead.acquire();
+        } catch (RejectedExecutionException e) {
+            log.info("HTTP /download/stream REJECTED {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "30").build();
+        }
+        StreamingResponseBody body = out -> {
+            List<CardDto> generated = new ArrayList<>();
+            try {
+                int emitted = cardService.streamGenerate(lang, category, difficulty, count, permit, card -> {
+                    generated.add(card);
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(card));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                log.info("HTTP /download/stream emitted={}", emitted);
+            } finally {
+                permit.close();
+                if (!generated.isEmpty()) cardPersistenceService.storeOnlyNew(generated);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    /** Every card of a deck as NDJSON, oldest first; the format {@code /actuator/cardimport} reads back. */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "de-CH") String lang,
+            @RequestParam(defaultValue = "family") String category,
+            @RequestParam(defaultValue = "medium") String difficulty
+    ) {
+        log.info("HTTP /export lang={} cat={} diff={}", lang, category, difficulty);
+        StreamingResponseBody body = out -> cardBulkService.exportDeck(lang, category, difficulty, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    @PostMapping("/download/jobs")
+    public ResponseEntity<GenerationJob> submitDownloadJob(
+            @RequestParam(defaultValue = "de-CH") String lang,
+            @RequestParam(defaultValue = "family") String category,
+            @RequestParam(defaultValue = "medium") String difficulty,
+            @RequestParam(defaultValue = "50") int count
+    ) {
+        try {
+            log.info("HTTP POST /download/jobs lang={} cat={} diff={} n={}", lang, category, difficulty, count);
+            GenerationJob job = generationJobService.submit(lang, category, difficulty, count);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/cards/download/jobs/" + job.id()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "30").build();
+        } catch (Exception e) {
+            log.info("HTTP POST /download/jobs ERROR {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/download/jobs/{id}")
+    public ResponseEntity<GenerationJob> downloadJob(@PathVariable String id) {
+        return ResponseEntity.of(generationJobService.find(id));
+    }
+
     @GetMapping("/draw")
     public ResponseEntity<List<CardDto>> draw(
             @RequestParam(defaultValue = "de-CH") String lang,
             @RequestParam(defaultValue = "family") String category,
             @RequestParam(defaultValue = "medium") String difficulty,
             @RequestParam(required = false) Integer count,
-            @RequestParam(required = false)  Integer offset
+            @RequestParam(required = false)  Integer offset,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "latest") String mode,
+            @RequestParam(required = false) String session,
+            WebRequest webRequest
     ) {
         try {
             final int requestedCount = (count == null ? maxDrawCount : count);
             final int limit = Math.max(1, Math.min(requestedCount, maxDrawCount));
-            final int requestedOffset = (offset == null ? 0 : offset);
-            final int off = Math.max(0, requestedOffset);
 
-            log.info("HTTP /draw lang={} cat={} diff={} n={}", lang, category, difficulty, count);
-            List<CardDto> cardDtoList = reader.drawLatest(lang, category, difficulty, limit, off);
-            log.info("HTTP /draw returned={}", cardDtoList.size());
-            return ResponseEntity.ok(cardDtoList);
+            log.info("HTTP /draw lang={} cat={} diff={} n={} mode={} session={}", lang, category, difficulty, count, mode, session != null);
+            if (session != null) {
+                List<CardDto> cardDtoList = drawSessionService.draw(session, lang, category, difficulty, limit,
+                        "random".equalsIgnoreCase(mode));
+                log.info("HTTP /draw returned={}", cardDtoList.size());
+                return ResponseEntity.ok(cardDtoList);
+            }
+            if ("random".equalsIgnoreCase(mode)) {
+                List<CardDto> cardDtoList = deckCache.drawRandom(lang, category, difficulty, limit);
+                log.info("HTTP /draw returned={}", cardDtoList.size());
+                return ResponseEntity.ok(cardDtoList);
+            }
+
+            // read before the cards: a concurrent insert can only make the validator older than the body
+            DeckVersion version = deckCache.version(lang, category, difficulty);
+            if (webRequest.checkNotModified(version.etag(), version.updatedAt().toEpochMilli())) {
+                log.info("HTTP /draw not modified version={}", version.version());
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            if (offset != null) {
+                List<CardDto> cardDtoList = deckCache.drawLatest(lang, category, difficulty, limit, Math.max(0, offset));
+                log.info("HTTP /draw returned={}", cardDtoList.size());
+                return ResponseEntity.ok(cardDtoList);
+            }
+
+            CardPage page = deckCache.drawPage(lang, category, difficulty, limit, cursor);
+            log.info("HTTP /draw returned={} more={}", page.cards().size(), page.nextCursor() != null);
+            var response = ResponseEntity.ok();
+            if (page.nextCursor() != null) response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+            return response.body(page.cards());
+        } catch (IllegalArgumentException e) {
+            log.info("HTTP /draw BAD REQUEST {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.info("HTTP /draw ERROR {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -72,5 +226,86 @@ public class CardsController {
 
     }
 
+    /**
+     * Cards inserted after {@code since} (the {@code watermark} of the previous page), oldest first.
+     * Call again with the returned watermark while {@code more} is set.
+     */
+    @GetMapping("/sync")
+    public ResponseEntity<SyncPage> sync(
+            @RequestParam(defaultValue = "de-CH") String lang,
+            @RequestParam(defaultValue = "family") String category,
+            @RequestParam(defaultValue = "medium") String difficulty,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer count
+    ) {
+        try {
+            final int requestedCount = (count == null ? maxDrawCount : count);
+            final int limit = Math.max(1, Math.min(requestedCount, maxDrawCount));
+
+            log.info("HTTP /sync lang={} cat={} diff={} n={} since={}", lang, category, difficulty, count, since != null);
+            SyncPage page = deckSyncService.since(lang, category, difficulty, limit, since);
+            log.info("HTTP /sync returned={} more={}", page.cards().size(), page.more());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            log.info("HTTP /sync BAD REQUEST {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.info("HTTP /sync ERROR {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * The whole deck as a pre-gzipped JSON array (oldest card first) kept on disk by
+     * {@link DeckBundleStore}, so serving it costs no query and no serialization. Full responses
+     * are handed to Tomcat's sendfile; {@code Range} requests get {@code 206} from the file resource.
+     */
+    @GetMapping("/bundle")
+    public ResponseEntity<?> bundle(
+            @RequestParam(defaultValue = "de-CH") String lang,
+            @RequestParam(defaultValue = "family") String category,
+            @RequestParam(defaultValue = "medium") String difficulty,
+            WebRequest webRequest,
+            HttpServletRequest request
+    ) {
+        try {
+            log.info("HTTP /bundle lang={} cat={} diff={}", lang, category, difficulty);
+            DeckBundle bundle = deckBundleStore.bundle(lang, category, difficulty);
+            if (bundle == null) return ResponseEntity.notFound().build();
+            boolean gzip = AcceptEncoding.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            if (webRequest.checkNotModified(bundle.etag(gzip), bundle.modified().toEpochMilli())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+            }
+            log.info("HTTP /bundle cards={} bytes={} gzip={}", bundle.cards(), bundle.length(), gzip);
+
+            if (!gzip) {
+                StreamingResponseBody body = out -> {
+                    try (InputStream in = new GZIPInputStream(Files.newInputStream(bundle.file()))) {
+                        in.transferTo(out);
+                    }
+                };
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .body(body);
+            }
 
-}
\ No newline at end of file
+            var response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (request.getHeader(HttpHeaders.RANGE) == null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, bundle.file().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, bundle.length());
+                return response.contentLength(bundle.length()).build();
+            }
+            return response.body(new FileSystemResource(bundle.file()));
+        } catch (Exception e) {
+            log.info("HTTP /bundle ERROR {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -2,6 +2,9 @@ package ch.guessthat.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,7 +17,8 @@ import java.util.UUID;
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class CardEntity {
     @Id
-    @Column(columnDefinition = "char(36)")
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "binary(16)")
     private UUID id;
 
     @Column(nullable=false, length=16)
@@ -32,6 +36,9 @@ public class CardEntity {
     @Column(name="norm_target", nullable=false, length=255)
     private String normTarget;
 
+    @Column(name="rand_key", nullable=false)
+    private double randKey;
+
     @Column(name="created_at", nullable=false)
     private OffsetDateTime createdAt;
 
@@ -1,8 +1,10 @@
 package ch.guessthat.records;
 
+import ch.guessthat.util.CardCursor;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 
+import java.time.Instant;
 import java.util.List;
 
 public class RecordManager {
@@ -22,4 +24,60 @@ public class RecordManager {
     ) {}
 
     public record CardBatch(List<CardDto> cards) {}
+
+    public record CardPage(List<CardDto> cards, String nextCursor) {}
+
+    public record SyncPage(List<CardDto> cards, String watermark, boolean more) {}
+
+    public record DeckEntry(CardDto card, CardCursor cursor) {}
+
+    public enum JobStatus { QUEUED, RUNNING, DONE, FAILED }
+
+    public record GenerationJob(
+            String id,
+            JobStatus status,
+            String language,
+            String category,
+            String difficulty,
+            int requested,
+            Instant createdAt,
+            Instant finishedAt,
+            List<CardDto> cards,
+            Integer inserted,
+            String error
+    ) {
+        public GenerationJob running() {
+            return new GenerationJob(id, JobStatus.RUNNING, language, category, difficulty, requested,
+                    createdAt, null, null, null, null);
+        }
+
+        public GenerationJob done(List<CardDto> cards, int inserted) {
+            return new GenerationJob(id, JobStatus.DONE, language, category, difficulty, requested,
+                    createdAt, Instant.now(), cards, inserted, null);
+        }
+
+        public GenerationJob failed(String error) {
+            return new GenerationJob(id, JobStatus.FAILED, language, category, difficulty, requested,
+                    createdAt, Instant.now(), null, null, error);
+        }
+    }
+
+    public record ImportResult(long read, long rejected, long duplicates, long inserted) {}
+
+    public record GenerationResult(List<CardDto> cards, int inserted) {}
+
+    /** Monotonic version of a deck, bumped with every insert; backs the validators of {@code /draw}. */
+    public record DeckVersion(long version, long cards, Instant updatedAt) {
+        public static final DeckVersion EMPTY = new DeckVersion(0, 0, Instant.EPOCH);
+
+        public String etag() {
+            return "\"" + version + "-" + cards + "\"";
+        }
+    }
+
+    public record DeckKey(String language, String category, String difficulty) {
+        public static DeckKey of(CardDto card) {
+            return new DeckKey(card.language(), card.category(), card.difficulty());
+        }
+    }
 }
@@ -1,109 +1,368 @@
 package ch.guessthat.repository;
 
-import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import ch.guessthat.util.CardCursor;
+import ch.guessthat.util.Uuids;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static ch.guessthat.records.RecordManager.*;
 
 @Repository
-@RequiredArgsConstructor
 public class CardReadDao {
 
     private final NamedParameterJdbcTemplate jdbc;
+    private final Timer drawRandomTimer;
+    private final Timer drawLatestTimer;
+    private final Timer drawLatestAfterTimer;
+    private final Timer countByDeckTimer;
+    private final Timer targetsTimer;
+    private final Timer deckVersionTimer;
+    private final Timer drawSinceTimer;
+    private final Timer drawOrdinalsTimer;
 
+    public CardReadDao(NamedParameterJdbcTemplate jdbc, MeterRegistry meterRegistry) {
+        this.jdbc = jdbc;
+        this.drawRandomTimer = queryTimer(meterRegistry, "drawRandom");
+        this.drawLatestTimer = queryTimer(meterRegistry, "drawLatest");
+        this.drawLatestAfterTimer = queryTimer(meterRegistry, "drawLatestAfter");
+        this.countByDeckTimer = queryTimer(meterRegistry, "countByDeck");
+        this.targetsTimer = queryTimer(meterRegistry, "forEachRecentTarget");
+        this.deckVersionTimer = queryTimer(meterRegistry, "deckVersion");
+        this.drawSinceTimer = queryTimer(meterRegistry, "drawSince");
+        this.drawOrdinalsTimer = queryTimer(meterRegistry, "drawOrdinals");
+    }
+
+    private static Timer queryTimer(MeterRegistry meterRegistry, String query) {
+        return Timer.builder("cards.db.query")
+                .tag("query", query)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
+    /**
+     * Joins the selected cards with their forbidden words so a draw is a single statement.
+     * The outer order must keep the rows of one card adjacent; {@link CardRowCollector} relies on it.
+     */
+    private static final String WITH_FORBIDDEN = """
+            SELECT c.id, c.language, c.category, c.difficulty, c.target, c.created_at%s, cf.word
+            FROM (%s) c
+            LEFT JOIN card_forbidden cf ON cf.card_id = c.id
+            ORDER BY %s
+            """;
+
+    /**
+     * Samples {@code count} distinct cards of a deck using the stored {@code rand_key}.
+     * Every requested card costs one seek on {@code idx_cards_deck_rand} (all seeks are sent as a
+     * single UNION statement); collisions and seeks past the highest key are topped up from a
+     * wrapping index range starting at another random point.
+     */
     @Transactional(readOnly = true)
     public List<CardDto> drawRandom(String lang, String category, String difficulty, int count) {
-        final String sql = """
-            SELECT c.id, c.language, c.category, c.difficulty, c.target
-            FROM cards c
-            WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff
-            ORDER BY RAND()
-            LIMIT %d
-            """.formatted(count);
+        return drawRandomTimer.record(() -> sampleRandom(lang, category, difficulty, count));
+    }
+
+    private List<CardDto> sampleRandom(String lang, String category, String difficulty, int count) {
+        var params = deckParams(lang, category, difficulty);
+        var random = ThreadLocalRandom.current();
 
-        return getRow(sql, lang, category, difficulty);
+        StringJoiner seeks = new StringJoiner("\nUNION\n");
+        for (int i = 0; i < count; i++) {
+            params.addValue("p" + i, random.nextDouble());
+            seeks.add("""
+                (SELECT c.id, c.language, c.category, c.difficulty, c.target, c.created_at, c.rand_key
+                 FROM cards c
+                 WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff AND c.rand_key >= :p%d
+                 ORDER BY c.rand_key
+                 LIMIT 1)""".formatted(i));
+        }
+
+        Map<String, CardRow> picked = new LinkedHashMap<>();
+        for (CardRow row : queryCards(seeks.toString(), "c.rand_key, c.id", params)) picked.putIfAbsent(row.id(), row);
+
+        if (picked.size() < count) {
+            params.addValue("start", random.nextDouble());
+            final String fromStart = """
+                SELECT c.id, c.language, c.category, c.difficulty, c.target, c.created_at, c.rand_key
+                FROM cards c
+                WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff AND c.rand_key >= :start
+                ORDER BY c.rand_key
+                LIMIT %d
+                """.formatted(count);
+            final String wrapped = """
+                SELECT c.id, c.language, c.category, c.difficulty, c.target, c.created_at, c.rand_key
+                FROM cards c
+                WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff AND c.rand_key < :start
+                ORDER BY c.rand_key
+                LIMIT %d
+                """.formatted(count);
+            topUp(picked, queryCards(fromStart, "c.rand_key, c.id", params), count);
+            topUp(picked, queryCards(wrapped, "c.rand_key, c.id", params), count);
+        }
+
+        // rows come back in rand_key order; without the shuffle the same cards would always lead
+        List<CardDto> cards = new ArrayList<>(picked.size());
+        for (CardRow row : picked.values()) cards.add(row.toDto());
+        Collections.shuffle(cards, random);
+        return cards;
     }
 
     @Transactional(readOnly = true)
     public List<CardDto> drawLatest(String lang, String category, String difficulty, int count, int offset) {
+        return drawLatestTimer.record(() -> latest(lang, category, difficulty, count, offset));
+    }
+
+    private List<CardDto> latest(String lang, String category, String difficulty, int count, int offset) {
         final String sql = """
-            SELECT c.id, c.language, c.category, c.difficulty, c.target
+            SELECT c.id, c.language, c.category, c.difficulty, c.target, c.created_at
             FROM cards c
             WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff
-            ORDER BY c.created_at DESC
+            ORDER BY c.created_at DESC, c.id DESC
             LIMIT %d OFFSET %d
             """.formatted(count, offset);
 
-        return getRow(sql, lang, category, difficulty);
+        return queryCards(sql, "c.created_at DESC, c.id DESC", deckParams(lang, category, difficulty)).stream()
+                .map(CardRow::toDto)
+                .toList();
+    }
+
+    /**
+     * Keyset variant of {@link #drawLatest}: returns the next {@code count} cards after {@code after}
+     * (or the newest ones when {@code after} is null) with a seek on {@code idx_cards_deck_created},
+     * so the cost of a page does not depend on how deep it is.
+     */
+    @Transactional(readOnly = true)
+    public List<DeckEntry> drawLatestAfter(String lang, String category, String difficulty, int count, CardCursor after) {
+        return drawLatestAfterTimer.record(() -> latestAfter(lang, category, difficulty, count, after));
+    }
+
+    private List<DeckEntry> latestAfter(String lang, String category, String difficulty, int count, CardCursor after) {
+        var params = deckParams(lang, category, difficulty);
+        String seek = "";
+        if (after != null) {
+            seek = "AND c.created_at <= :ts AND (c.created_at < :ts OR c.id < :id)";
+            params.addValue("ts", Timestamp.from(after.createdAt()))
+                    .addValue("id", Uuids.toBytes(after.id()));
+        }
+
+        final String sql = """
+            SELECT c.id, c.language, c.category, c.difficulty, c.target, c.created_at
+            FROM cards c
+            WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff %s
+            ORDER BY c.created_at DESC, c.id DESC
+            LIMIT %d
+            """.formatted(seek, count);
+
+        return queryCards(sql, "c.created_at DESC, c.id DESC", params).stream()
+                .map(r -> new DeckEntry(r.toDto(), new CardCursor(r.createdAt(), r.id())))
+                .toList();
+    }
+
+    /**
+     * Oldest-first counterpart of {@link #drawLatestAfter} for sync: the next {@code count} cards
+     * inserted after {@code after} (or from the start of the deck when it is null), seeking forward on
+     * {@code idx_cards_deck_created}. Cards created at or after {@code before} are left for a later call.
+     */
+    @Transactional(readOnly = true)
+    public List<DeckEntry> drawSince(String lang, String category, String difficulty, int count,
+                                     CardCursor after, Instant before) {
+        return drawSinceTimer.record(() -> since(lang, category, difficulty, count, after, before));
+    }
+
+    private List<DeckEntry> since(String lang, String category, String difficulty, int count,
+                                  CardCursor after, Instant before) {
+        var params = deckParams(lang, category, difficulty).addValue("before", Timestamp.from(before));
+        String seek = "";
+        if (after != null) {
+            seek = "AND c.created_at >= :ts AND (c.created_at > :ts OR c.id > :id)";
+            params.addValue("ts", Timestamp.from(after.createdAt()))
+                    .addValue("id", Uuids.toBytes(after.id()));
+        }
+
+        final String sql = """
+            SELECT c.id, c.language, c.category, c.difficulty, c.target, c.created_at
+            FROM cards c
+            WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff AND c.created_at < :before %s
+            ORDER BY c.created_at, c.id
+            LIMIT %d
+            """.formatted(seek, count);
+
+        return queryCards(sql, "c.created_at, c.id", params).stream()
+                .map(r -> new DeckEntry(r.toDto(), new CardCursor(r.createdAt(), r.id())))
+                .toList();
     }
 
-    private Map<UUID, List<String>> loadForbidden(List<UUID> ids) {
-        if (ids == null || ids.isEmpty()) return Map.of();
+    /**
+     * The cards at the given {@code deck_ordinal}s by ordinal, in the order of {@code ordinals}; seeks on
+     * {@code uq_cards_deck_ordinal}. Ordinals without a card (yet, on a lagging replica) are left out.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, CardDto> drawOrdinals(String lang, String category, String difficulty, List<Integer> ordinals) {
+        if (ordinals.isEmpty()) return Map.of();
+        return drawOrdinalsTimer.record(() -> byOrdinals(lang, category, difficulty, ordinals));
+    }
 
+    private Map<Integer, CardDto> byOrdinals(String lang, String category, String difficulty, List<Integer> ordinals) {
         final String sql = """
-            SELECT cf.card_id, cf.word
-            FROM card_forbidden cf
-            WHERE cf.card_id IN (:ids)
+            SELECT c.id, c.language, c.category, c.difficulty, c.target, c.created_at, c.deck_ordinal
+            FROM cards c
+            WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff AND c.deck_ordinal IN (:ords)
             """;
 
-        var params = new MapSqlParameterSource().addValue(
-                "ids",
-                ids.stream().map(UUID::toString).collect(Collectors.toList())
-        );
+        // ordered in Java: FIELD() is MySQL-only
+        Map<Integer, CardDto> found = new HashMap<>();
+        var params = deckParams(lang, category, difficulty).addValue("ords", ordinals);
+        for (CardRow row : queryCards(sql, "c.deck_ordinal, c.id", params, true)) found.put(row.ordinal(), row.toDto());
 
-        Map<UUID, List<String>> out = new HashMap<>();
-        jdbc.query(sql, params, rs -> {
-            UUID id = UUID.fromString(rs.getString("card_id"));
-            String word = rs.getString("word");
-            out.computeIfAbsent(id, k -> new ArrayList<>()).add(word);
+        Map<Integer, CardDto> out = new LinkedHashMap<>(found.size() * 2);
+        for (Integer ordinal : ordinals) {
+            CardDto card = found.get(ordinal);
+            if (card != null) out.put(ordinal, card);
+        }
+        return out;
+    }
+
+    /**
+     * Number of cards stored per deck, read from {@code deck_versions.card_count} (one row per deck,
+     * kept in step with every insert) rather than counted over {@code cards}. Decks without cards are absent.
+     */
+    @Transactional(readOnly = true)
+    public Map<DeckKey, Long> countByDeck() {
+        return countByDeckTimer.record(this::countDecks);
+    }
+
+    private Map<DeckKey, Long> countDecks() {
+        final String sql = """
+            SELECT v.language, v.category, v.difficulty, v.card_count
+            FROM deck_versions v
+            """;
+
+        Map<DeckKey, Long> out = new HashMap<>();
+        jdbc.query(sql, rs -> {
+            out.put(new DeckKey(rs.getString("language"), rs.getString("category"), rs.getString("difficulty")),
+                    rs.getLong("card_count"));
         });
         return out;
     }
 
-    private List<CardDto> getRow(
-            String sql,
-            String lang,
-            String category,
-            String difficulty) {
-        var params = new MapSqlParameterSource()
+    /** Version row of a deck (a primary key lookup), or {@link DeckVersion#EMPTY} when it has no cards yet. */
+    @Transactional(readOnly = true)
+    public DeckVersion deckVersion(String lang, String category, String difficulty) {
+        return deckVersionTimer.record(() -> version(lang, category, difficulty));
+    }
+
+    private DeckVersion version(String lang, String category, String difficulty) {
+        final String sql = """
+            SELECT v.version, v.card_count, v.updated_at
+            FROM deck_versions v
+            WHERE v.language = :lang AND v.category = :cat AND v.difficulty = :diff
+            """;
+
+        List<DeckVersion> rows = jdbc.query(sql, deckParams(lang, category, difficulty), (rs, i) -> new DeckVersion(
+                rs.getLong("version"), rs.getLong("card_count"), rs.getTimestamp("updated_at").toInstant()));
+        return rows.isEmpty() ? DeckVersion.EMPTY : rows.getFirst();
+    }
+
+    /**
+     * Passes {@code (language, norm_target, target)} of the newest {@code limit} cards of a deck to
+     * {@code consumer}, newest first; a backward range over {@code idx_cards_deck_created}, so the
+     * driver never holds more than {@code limit} rows.
+     */
+    @Transactional(readOnly = true)
+    public void forEachRecentTarget(DeckKey deck, int limit, TargetConsumer consumer) {
+        final String sql = """
+            SELECT c.language, c.norm_target, c.target
+            FROM cards c
+            WHERE c.language = :lang AND c.category = :cat AND c.difficulty = :diff
+            ORDER BY c.created_at DESC, c.id DESC
+            LIMIT :limit
+            """;
+
+        var params = deckParams(deck.language(), deck.category(), deck.difficulty()).addValue("limit", limit);
+        targetsTimer.record(() -> jdbc.query(sql, params, rs -> {
+            consumer.accept(rs.getString("language"), rs.getString("norm_target"), rs.getString("target"));
+        }));
+    }
+
+    @FunctionalInterface
+    public interface TargetConsumer {
+        void accept(String language, String normTarget, String target);
+    }
+
+    private static void topUp(Map<String, CardRow> picked, List<CardRow> rows, int count) {
+        for (CardRow row : rows) {
+            if (picked.size() >= count) return;
+            picked.putIfAbsent(row.id(), row);
+        }
+    }
+
+    private static MapSqlParameterSource deckParams(String lang, String category, String difficulty) {
+        return new MapSqlParameterSource()
                 .addValue("lang", lang)
                 .addValue("cat", category)
                 .addValue("diff", difficulty);
+    }
 
-        List<CardRow> rows = jdbc.query(sql, params, (rs, i) -> new CardRow(
-                UUID.fromString(rs.getString("id")),
-                rs.getString("language"),
-                rs.getString("category"),
-                rs.getString("difficulty"),
-                rs.getString("target")
-        ));
-
-        if (rows.isEmpty()) return List.of();
-
-        Map<UUID, List<String>> forbById = loadForbidden(rows.stream().map(r -> r.id).toList());
-
-        List<CardDto> out = new ArrayList<>(rows.size());
-        for (CardRow r : rows) {
-            out.add(new CardDto(
-                    r.id.toString(),
-                    r.language,
-                    r.category,
-                    r.difficulty,
-                    r.target,
-                    forbById.getOrDefault(r.id, List.of())
-            ));
+    private List<CardRow> queryCards(String cardSql, String order, MapSqlParameterSource params) {
+        return queryCards(cardSql, order, params, false);
+    }
+
+    /** With {@code withOrdinal}, {@code cardSql} must select {@code deck_ordinal}. */
+    private List<CardRow> queryCards(String cardSql, String order, MapSqlParameterSource params, boolean withOrdinal) {
+        var collector = new CardRowCollector(withOrdinal);
+        jdbc.query(WITH_FORBIDDEN.formatted(withOrdinal ? ", c.deck_ordinal" : "", cardSql, order), params, collector);
+        return collector.rows;
+    }
+
+    /** Folds the joined (card, word) rows into one {@link CardRow} per card as they stream in. */
+    private static final class CardRowCollector implements RowCallbackHandler {
+        private final List<CardRow> rows = new ArrayList<>();
+        private final boolean withOrdinal;
+        private CardRow current;
+        private byte[] currentId;
+
+        CardRowCollector(boolean withOrdinal) {
+            this.withOrdinal = withOrdinal;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            byte[] id = rs.getBytes("id");
+            if (current == null || !Arrays.equals(currentId, id)) {
+                currentId = id;
+                current = new CardRow(
+                        Uuids.fromBytes(id).toString(),
+                        rs.getString("language"),
+                        rs.getString("category"),
+                        rs.getString("difficulty"),
+                        rs.getString("target"),
+                        rs.getTimestamp("created_at").toInstant(),
+                        withOrdinal ? rs.getInt("deck_ordinal") : null,
+                        new ArrayList<>(7)
+                );
+                rows.add(current);
+            }
+            String word = rs.getString("word");
+            if (word != null) current.forbidden().add(word);
         }
-        return out;
     }
 
     /** Lightweight internal row holder. */
-    private record CardRow(UUID id, String language, String category, String difficulty, String target) {}
+    private record CardRow(String id, String language, String category, String difficulty, String target,
+                           Instant createdAt, Integer ordinal, List<String> forbidden) {
+        CardDto toDto() {
+            return new CardDto(id, language, category, difficulty, target, forbidden);
+        }
+    }
 }
@@ -1,48 +1,125 @@
 package ch.guessthat.repository;
 
 import ch.guessthat.model.CardEntity;
-import jakarta.transaction.Transactional;
+import ch.guessthat.util.Uuids;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+import static ch.guessthat.records.RecordManager.DeckKey;
 
 @Repository
 @RequiredArgsConstructor
 public class CardWriteDao {
     private final NamedParameterJdbcTemplate jdbc;
 
+    /**
+     * Inserts all cards with one multi-row {@code INSERT IGNORE}, reads back which ids actually
+     * landed (the rest collided with {@code uq_cards_lang_norm}) and writes the forbidden words of
+     * those cards in one batch, all in one transaction. The {@code deck_versions} row of every deck
+     * that received cards is bumped and the new cards get their deck ordinals in the same transaction.
+     *
+     * @return the entities that were inserted, in input order
+     */
     @Transactional
-    public Optional<UUID> insertCardIfNew(CardEntity cardEntity) {
+    public List<CardEntity> insertCardsIfNew(List<CardEntity> cardEntities) {
+        if (cardEntities.isEmpty()) return List.of();
+
+        var parameterSource = new MapSqlParameterSource();
+        var values = new StringJoiner(",\n");
+        for (int i = 0; i < cardEntities.size(); i++) {
+            CardEntity cardEntity = cardEntities.get(i);
+            values.add("(:id%1$d, :lang%1$d, :cat%1$d, :diff%1$d, :target%1$d, :norm%1$d, :rk%1$d, NOW())".formatted(i));
+            parameterSource
+                    .addValue("id" + i, Uuids.toBytes(cardEntity.getId()))
+                    .addValue("lang" + i, cardEntity.getLanguage())
+                    .addValue("cat" + i, cardEntity.getCategory())
+                    .addValue("diff" + i, cardEntity.getDifficulty())
+                    .addValue("target" + i, cardEntity.getTarget())
+                    .addValue("norm" + i, cardEntity.getNormTarget())
+                    .addValue("rk" + i, cardEntity.getRandKey());
+        }
         var sql = """
-      INSERT IGNORE INTO cards (id, language, category, difficulty, target, norm_target, created_at)
-      VALUES (:id, :lang, :cat, :diff, :target, :norm, NOW())
-      """;
-        var parameterSource = new MapSqlParameterSource()
-                .addValue("id", cardEntity.getId().toString())
-                .addValue("lang", cardEntity.getLanguage())
-                .addValue("cat", cardEntity.getCategory())
-                .addValue("diff", cardEntity.getDifficulty())
-                .addValue("target", cardEntity.getTarget())
-                .addValue("norm", cardEntity.getNormTarget());
+      INSERT IGNORE INTO cards (id, language, category, difficulty, target, norm_target, rand_key, created_at)
+      VALUES %s
+      """.formatted(values);
 
         int rows = jdbc.update(sql, parameterSource);
-        if (rows == 0) return Optional.empty();
+        if (rows == 0) return List.of();
+
+        Set<UUID> insertedIds = insertedIds(cardEntities);
+        List<CardEntity> inserted = cardEntities.stream()
+                .filter(e -> insertedIds.contains(e.getId()))
+                .toList();
+
+        insertForbidden(inserted);
+        bumpDeckVersions(inserted);
+        return inserted;
+    }
+
+    private Set<UUID> insertedIds(List<CardEntity> cardEntities) {
+        var sql = "SELECT id FROM cards WHERE id IN (:ids)";
+        var ids = cardEntities.stream().map(e -> Uuids.toBytes(e.getId())).toList();
+        return new HashSet<>(jdbc.query(sql, new MapSqlParameterSource("ids", ids),
+                (rs, n) -> Uuids.fromBytes(rs.getBytes("id"))));
+    }
+
+    /**
+     * Bumps the {@code deck_versions} row of every deck that received cards and numbers the new cards
+     * with the next dense {@code deck_ordinal}s of their deck. The upsert keeps the version row locked
+     * until commit, so concurrent inserts into one deck cannot hand out the same ordinal.
+     */
+    private void bumpDeckVersions(List<CardEntity> inserted) {
+        var bump = """
+      INSERT INTO deck_versions (language, category, difficulty, version, card_count, updated_at)
+      VALUES (:lang, :cat, :diff, 1, :n, NOW(3))
+      ON DUPLICATE KEY UPDATE version = version + 1, card_count = card_count + :n, updated_at = NOW(3)
+      """;
+        var count = "SELECT card_count FROM deck_versions WHERE language = :lang AND category = :cat AND difficulty = :diff";
+        var number = "UPDATE cards SET deck_ordinal = :ord WHERE id = :id";
 
-        insertForbidden(cardEntity.getId(), cardEntity.getForbidden());
-        return Optional.of(cardEntity.getId());
+        Map<DeckKey, List<CardEntity>> byDeck = inserted.stream()
+                .collect(Collectors.groupingBy(e -> new DeckKey(e.getLanguage(), e.getCategory(), e.getDifficulty()),
+                        LinkedHashMap::new, Collectors.toList()));
+        List<MapSqlParameterSource> ordinals = new ArrayList<>(inserted.size());
+        for (var deck : byDeck.entrySet()) {
+            var params = new MapSqlParameterSource()
+                    .addValue("lang", deck.getKey().language())
+                    .addValue("cat", deck.getKey().category())
+                    .addValue("diff", deck.getKey().difficulty())
+                    .addValue("n", deck.getValue().size());
+            jdbc.update(bump, params);
+            long next = jdbc.queryForObject(count, params, Long.class) - deck.getValue().size();
+            for (CardEntity entity : deck.getValue()) {
+                ordinals.add(new MapSqlParameterSource()
+                        .addValue("ord", next++)
+                        .addValue("id", Uuids.toBytes(entity.getId())));
+            }
+        }
+        if (ordinals.isEmpty()) return;
+        jdbc.batchUpdate(number, ordinals.toArray(MapSqlParameterSource[]::new));
     }
 
-    private void insertForbidden(UUID cardId, List<String> words) {
-        if (words == null || words.isEmpty()) return;
+    private void insertForbidden(List<CardEntity> cardEntities) {
         var sql = "INSERT INTO card_forbidden (card_id, word) VALUES (:id, :w)";
-        var batch = words.stream()
-                .map(w -> new MapSqlParameterSource().addValue("id", cardId.toString()).addValue("w", w))
+        var batch = cardEntities.stream()
+                .filter(e -> e.getForbidden() != null)
+                .flatMap(e -> e.getForbidden().stream()
+                        .map(w -> new MapSqlParameterSource().addValue("id", Uuids.toBytes(e.getId())).addValue("w", w)))
                 .toArray(MapSqlParameterSource[]::new);
+        if (batch.length == 0) return;
         jdbc.batchUpdate(sql, batch);
     }
 }
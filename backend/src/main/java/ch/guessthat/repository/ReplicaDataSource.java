@@ -0,0 +1,168 @@
+package ch.guessthat.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Connections for read-only transactions, handed out round-robin across the replicas. A replica
+ * that fails to hand out a connection is skipped for {@code retryAfter}, and {@link #checkReplicas()}
+ * also takes out those lagging more than {@code maxLag} behind the primary; when none is available,
+ * or the current thread is pinned with {@link #onPrimary}, the primary serves the read instead.
+ * <p>
+ * Used as the read-only target of a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * so {@code @Transactional(readOnly = true)} picks it and everything else stays on the primary.
+ */
+@Slf4j
+public class ReplicaDataSource extends AbstractDataSource implements Closeable {
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long retryAfterNanos;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter failovers;
+
+    public ReplicaDataSource(DataSource primary, List<DataSource> replicas, Duration retryAfter, Duration maxLag,
+                             MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.maxLag = maxLag;
+        this.failovers = meterRegistry.counter("db.replica.failover");
+        meterRegistry.gauge("db.replica.available", this, ReplicaDataSource::availableReplicas);
+    }
+
+    /**
+     * Runs {@code work} with every read on this thread going to the primary, e.g. for a client that
+     * has just written and must see its own writes, or to fill a cache that outlives replica lag.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(true);
+        try {
+            return work.get();
+        } finally {
+            PRIMARY_ONLY.set(previous);
+        }
+    }
+
+    /** Sends every read on the current thread to the primary until {@link #clearPin()}. */
+    public static void pinToPrimary() {
+        PRIMARY_ONLY.set(true);
+    }
+
+    public static void clearPin() {
+        PRIMARY_ONLY.remove();
+    }
+
+    public static boolean pinnedToPrimary() {
+        return PRIMARY_ONLY.get();
+    }
+
+    /**
+     * Probes every replica: one that refuses a connection is skipped for {@code retryAfter}, one
+     * whose {@code Seconds_Behind_Source} exceeds {@code maxLag} (or that is not replicating) until
+     * a later check finds it caught up. A zero {@code maxLag} only checks the connection.
+     */
+    public void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            try (Connection connection = replica.dataSource.getConnection()) {
+                Duration lag = maxLag.isZero() ? Duration.ZERO : replicationLag(connection);
+                boolean lagging = lag == null || lag.compareTo(maxLag) > 0;
+                if (lagging && !replica.lagging) log.warn("DB replica {} lagging lag={} max={}", i, lag, maxLag);
+                else if (!lagging && replica.lagging) log.info("DB replica {} caught up lag={}", i, lag);
+                replica.lagging = lagging;
+            } catch (SQLException e) {
+                replica.downUntil = System.nanoTime() + retryAfterNanos;
+                log.warn("DB replica {} failed its health check, skipping for {}s: {}",
+                        i, retryAfterNanos / 1_000_000_000L, e.getMessage());
+            }
+        }
+    }
+
+    /** {@code Seconds_Behind_Source} of a MySQL replica, or null when it is not replicating. */
+    private static Duration replicationLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) return null;
+            long seconds = rs.getLong("Seconds_Behind_Source");
+            return rs.wasNull() ? null : Duration.ofSeconds(seconds);
+        }
+    }
+
+    public int availableReplicas() {
+        long now = System.nanoTime();
+        return (int) replicas.stream().filter(r -> r.available(now)).count();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(ds -> ds.getConnection(username, password));
+    }
+
+    private Connection connect(ConnectionSource source) throws SQLException {
+        if (PRIMARY_ONLY.get() || replicas.isEmpty()) return source.open(primary);
+
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            long now = System.nanoTime();
+            if (!replica.available(now)) continue;
+            try {
+                return source.open(replica.dataSource);
+            } catch (SQLException e) {
+                replica.downUntil = now + retryAfterNanos;
+                log.warn("DB replica {} unavailable, skipping for {}s: {}",
+                        (start + i) % replicas.size(), retryAfterNanos / 1_000_000_000L, e.getMessage());
+            }
+        }
+        failovers.increment();
+        return source.open(primary);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) closeable.close();
+        }
+    }
+
+    private interface ConnectionSource {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+        final DataSource dataSource;
+        volatile long downUntil = System.nanoTime();
+        volatile boolean lagging;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        boolean available(long now) {
+            return !lagging && now - downUntil >= 0;
+        }
+    }
+}
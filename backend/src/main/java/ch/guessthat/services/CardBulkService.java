@@ -0,0 +1,122 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.util.CardCursor;
+import ch.guessthat.util.SafetyFilters;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * Bulk card import and export. Imports read a JSON array or NDJSON stream card by card, run it
+ * through the same safety filters as generated cards and store it in chunks of {@code batch-size}
+ * via {@link CardPersistenceService}, so memory stays flat for any file size. Card ids in the
+ * input are not kept; every stored card gets a fresh id. Exports write a deck as NDJSON, oldest
+ * card first, paging with keyset seeks.
+ */
+@Slf4j
+@Service
+public class CardBulkService {
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    private final CardPersistenceService cardPersistenceService;
+    private final CardReadDao reader;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader cardReader;
+    private final int batchSize;
+
+    public CardBulkService(CardPersistenceService cardPersistenceService,
+                           CardReadDao reader,
+                           ObjectMapper objectMapper,
+                           @Value("${app.config.import.batch-size}") int batchSize) {
+        this.cardPersistenceService = cardPersistenceService;
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+        this.cardReader = objectMapper.readerFor(CardDto.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.batchSize = batchSize;
+    }
+
+    /** Imports every card of a JSON array or NDJSON stream. */
+    public ImportResult importCards(InputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        long read = 0;
+        long rejected = 0;
+        long inserted = 0;
+        List<CardDto> chunk = new ArrayList<>(batchSize);
+
+        try (MappingIterator<CardDto> cards = cardReader.readValues(in)) {
+            while (cards.hasNextValue()) {
+                CardDto card = cards.nextValue();
+                read++;
+                if (!acceptable(card)) {
+                    rejected++;
+                    continue;
+                }
+                chunk.add(card);
+                if (chunk.size() >= batchSize) {
+                    inserted += cardPersistenceService.storeOnlyNew(chunk).size();
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) inserted += cardPersistenceService.storeOnlyNew(chunk).size();
+
+        ImportResult result = new ImportResult(read, rejected, read - rejected - inserted, inserted);
+        log.info("IMPORT read={} rejected={} duplicates={} inserted={} durationMs={}",
+                result.read(), result.rejected(), result.duplicates(), result.inserted(),
+                System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * Writes every card of a deck to {@code out}, one JSON object per line. Cards inserted while the
+     * export runs may or may not be included.
+     *
+     * @return number of exported cards
+     */
+    public long exportDeck(String lang, String category, String difficulty, OutputStream out) throws IOException {
+        Instant before = Instant.now().plusSeconds(1);
+        long exported = 0;
+        CardCursor after = null;
+        List<DeckEntry> page;
+        do {
+            page = reader.drawSince(lang, category, difficulty, EXPORT_PAGE_SIZE, after, before);
+            for (DeckEntry entry : page) {
+                out.write(objectMapper.writeValueAsBytes(entry.card()));
+                out.write('\n');
+            }
+            exported += page.size();
+            if (!page.isEmpty()) after = page.getLast().cursor();
+        } while (page.size() == EXPORT_PAGE_SIZE);
+        out.flush();
+        log.info("EXPORT deck={}:{}:{} cards={}", lang, category, difficulty, exported);
+        return exported;
+    }
+
+    private static boolean acceptable(CardDto card) {
+        return card != null
+                && notBlank(card.language()) && notBlank(card.category()) && notBlank(card.difficulty())
+                && notBlank(card.target())
+                && card.forbidden() != null && !card.forbidden().isEmpty() && card.forbidden().size() <= 7
+                && SafetyFilters.isFamilyFriendly(card)
+                && SafetyFilters.passesStemExclusion(card);
+    }
+
+    private static boolean notBlank(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -4,6 +4,8 @@ package ch.guessthat.services;
 import ch.guessthat.model.CardEntity;
 import ch.guessthat.repository.CardWriteDao;
 import ch.guessthat.util.TextNorm;
+import ch.guessthat.util.Uuids;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -11,48 +13,70 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 import static ch.guessthat.records.RecordManager.CardDto;
+import static ch.guessthat.records.RecordManager.DeckKey;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CardPersistenceService {
     private final CardWriteDao writeDao;
+    private final DeckCache deckCache;
+    private final DeckBundleStore deckBundleStore;
+    private final NormTargetIndex normTargetIndex;
+    private final MeterRegistry meterRegistry;
 
+    /**
+     * Inserts the cards whose normalized target is new for their language. Targets already in the
+     * {@link NormTargetIndex} are skipped without touching MySQL; the unique key catches the rest.
+     */
     public List<CardDto> storeOnlyNew(List<CardDto> generated) {
         int attempted = generated.size();
+        List<CardEntity> entities = generated.stream()
+                .map(this::toEntity)
+                .filter(e -> !normTargetIndex.contains(e.getLanguage(), e.getNormTarget()))
+                .toList();
+        int known = attempted - entities.size();
+
         List<CardDto> inserted = new ArrayList<>();
-        for (CardDto dto : generated) {
-            CardEntity entity = toEntity(dto);
-            var maybeId = writeDao.insertCardIfNew(entity);
-            maybeId.ifPresent(id -> {
-                inserted.add(new CardDto(
-                        id.toString(),
-                        entity.getLanguage(),
-                        entity.getCategory(),
-                        entity.getDifficulty(),
-                        entity.getTarget(),
-                        entity.getForbidden()
-                ));
-                log.debug("DB insert id={} target='{}' lang={} diff={} cat={}",
-                        id, entity.getTarget(), entity.getLanguage(), entity.getDifficulty(), entity.getCategory());
-            });
+        for (CardEntity entity : writeDao.insertCardsIfNew(entities)) {
+            inserted.add(new CardDto(
+                    entity.getId().toString(),
+                    entity.getLanguage(),
+                    entity.getCategory(),
+                    entity.getDifficulty(),
+                    entity.getTarget(),
+                    entity.getForbidden()
+            ));
+            log.debug("DB insert id={} target='{}' lang={} diff={} cat={}",
+                    entity.getId(), entity.getTarget(), entity.getLanguage(), entity.getDifficulty(), entity.getCategory());
         }
-        log.info("DB storeOnlyNew attempted={} inserted={} duplicates={}",
-                attempted, inserted.size(), attempted - inserted.size());
+        // inserted or rejected by the unique key: either way the target exists now
+        entities.forEach(e -> normTargetIndex.add(e.getLanguage(), e.getNormTarget(), e.getTarget()));
+        Set<DeckKey> changed = inserted.stream().map(DeckKey::of).collect(Collectors.toSet());
+        deckCache.invalidate(changed);
+        deckBundleStore.changed(changed);
+        meterRegistry.counter("cards.stored", "result", "inserted").increment(inserted.size());
+        meterRegistry.counter("cards.stored", "result", "duplicate").increment(entities.size() - inserted.size());
+        meterRegistry.counter("cards.stored", "result", "known-duplicate").increment(known);
+        log.info("DB storeOnlyNew attempted={} inserted={} duplicates={} skippedKnown={}",
+                attempted, inserted.size(), attempted - inserted.size(), known);
         return inserted;
     }
 
     private CardEntity toEntity(CardDto d) {
         return CardEntity.builder()
-                .id(UUID.randomUUID())
+                .id(Uuids.v7())
                 .language(d.language())
                 .category(d.category())
                 .difficulty(d.difficulty())
                 .target(d.target())
                 .normTarget(TextNorm.normLower(d.target()))
+                .randKey(ThreadLocalRandom.current().nextDouble())
                 .createdAt(java.time.OffsetDateTime.now())
                 .forbidden(Optional.ofNullable(d.forbidden()).orElseGet(List::of))
                 .build();
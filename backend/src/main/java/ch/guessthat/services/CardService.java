@@ -1,21 +1,32 @@
 package ch.guessthat.services;
 
 import ch.guessthat.config.OpenAIProperties;
+import ch.guessthat.util.CardStreamParser;
 import ch.guessthat.util.SafetyFilters;
+import ch.guessthat.util.TextNorm;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openai.client.OpenAIClient;
+import com.openai.core.http.StreamResponse;
 import com.openai.models.ChatModel;
+import com.openai.models.responses.ResponseCompletedEvent;
 import com.openai.models.responses.ResponseCreateParams;
+import com.openai.models.responses.ResponseStreamEvent;
+import com.openai.models.responses.ResponseTextDeltaEvent;
+import com.openai.models.responses.ResponseUsage;
 import com.openai.models.responses.StructuredResponse;
 import com.openai.models.responses.StructuredResponseCreateParams;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static ch.guessthat.records.RecordManager.*;
@@ -23,38 +34,128 @@ import static ch.guessthat.util.ConfigLoader.loadConfig;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class CardService {
     private final OpenAIClient openAI;
     private final OpenAIProperties props;
+    private final ObjectMapper objectMapper;
+    private final OverflowPool overflowPool;
+    private final OpenAiBulkhead bulkhead;
+    private final NormTargetIndex normTargetIndex;
+    private final MeterRegistry meterRegistry;
+    private final Counter filterAccepted;
+    private final Map<FilterStage, Counter> filterRejected = new EnumMap<>(FilterStage.class);
+
+    /** Lower bound for the acceptance rate used to size refill rounds. */
+    private static final double MIN_ACCEPTANCE = 0.5;
 
     @Value("${app.config.max-gen-count}")
     private int maxGenCount;
 
+    @Value("${app.config.generation.max-request-count}")
+    private int maxRequestCount;
+
+    @Value("${app.config.generation.fan-out-concurrency}")
+    private int fanOutConcurrency;
+
+    @Value("${app.config.generation.fan-out-max-rounds}")
+    private int fanOutMaxRounds;
+
+    @Value("${app.config.generation.fan-out-deadline-seconds}")
+    private long fanOutDeadlineSeconds;
+
     @Value("${app.config.prompt-template-file}")
     private String promptTemplateFile;
 
+    @Value("${app.config.norm-index.prompt-exclusion-size}")
+    private int promptExclusionSize;
+
+    /** {@code lang:category:difficulty} decks whose token usage is tagged; every other deck is {@code other}. */
+    @Value("${app.config.metrics.token-decks:}")
+    private Set<String> tokenDecks = Set.of();
+
+    /**
+     * Stages of the per-card filter chain in the order they run; the {@code stage} tag of rejections.
+     * {@code MALFORMED} counts streamed objects that do not parse as a card at all.
+     */
+    enum FilterStage {
+        MALFORMED, LANGUAGE, BLANK, DUPLICATE, FORBIDDEN_COUNT, PROFANITY, STEM;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    public CardService(OpenAIClient openAI, OpenAIProperties props, ObjectMapper objectMapper,
+                       OverflowPool overflowPool, OpenAiBulkhead bulkhead, NormTargetIndex normTargetIndex,
+                       MeterRegistry meterRegistry) {
+        this.openAI = openAI;
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.overflowPool = overflowPool;
+        this.bulkhead = bulkhead;
+        this.normTargetIndex = normTargetIndex;
+        this.meterRegistry = meterRegistry;
+        this.filterAccepted = meterRegistry.counter("cards.filter.accepted");
+        for (FilterStage stage : FilterStage.values()) {
+            filterRejected.put(stage, meterRegistry.counter("cards.filter.rejected", "stage", stage.tag()));
+        }
+    }
+
+    /**
+     * Generates up to {@code count} filtered cards. Requests above {@code max-gen-count} are split
+     * into sub-batches that run concurrently on virtual threads (at most {@code fan-out-concurrency}
+     * at a time) and share one dedupe set of normalized targets. Shortfalls left by the filters are
+     * refilled in further rounds, sized by the acceptance rate seen so far, until the deadline.
+     * Surplus cards of earlier calls are taken from the {@link OverflowPool} first, and cards beyond
+     * {@code count} are put back there instead of being discarded.
+     */
     public List<CardDto> getOrGenerate(String lang, String category, String difficulty, int count) throws IOException {
         log.info("GEN start model={} lang={} cat={} diff={} count={}", props.getModel(), lang, category, difficulty, count);
-        int batch = Math.min(count, maxGenCount);
+        count = Math.min(count, maxRequestCount);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(fanOutDeadlineSeconds);
 
-        CardBatch batchOut = requestBatch(lang, category, difficulty, batch);
+        DeckKey deck = new DeckKey(lang, category, difficulty);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        List<CardDto> pooled = overflowPool.take(deck, count);
+        pooled.forEach(card -> seen.add(TextNorm.normLower(card.target())));
+        if (pooled.size() >= count) return pooled;
 
-        int beforeFilter = batchOut.cards().size();
+        List<CardDto> accepted = new ArrayList<>(pooled);
+        int requested = 0;
+        int generated = 0;
+
+        for (int round = 0; round < fanOutMaxRounds && accepted.size() < count; round++) {
+            int missing = count - accepted.size();
+            // pooled cards were never requested, so they must not count towards the acceptance rate
+            double acceptance = requested == 0 ? 1.0 : Math.max(MIN_ACCEPTANCE, (double) generated / requested);
+            int toRequest = (int) Math.min((long) Math.ceil(missing / acceptance), 2L * missing);
+
+            List<Callable<List<CardDto>>> batches = new ArrayList<>();
+            for (int left = toRequest; left > 0; left -= maxGenCount) {
+                int size = Math.min(left, maxGenCount);
+                batches.add(() -> filter(requestBatch(lang, category, difficulty, size), lang, seen));
+            }
+            requested += toRequest;
+
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) break;
+            List<CardDto> roundCards = runBatches(batches, remainingNanos);
+            generated += roundCards.size();
+            accepted.addAll(roundCards);
+            log.info("GEN round={} batches={} requested={} accepted={}/{}", round, batches.size(), toRequest, accepted.size(), count);
+        }
+
+        if (accepted.size() <= count) return accepted;
+        overflowPool.offer(deck, List.copyOf(accepted.subList(count, accepted.size())));
+        return List.copyOf(accepted.subList(0, count));
+    }
 
-        HashSet<String> seen = new HashSet<>();
+    /** Filters one model response; {@code seen} may be shared between concurrently filtered batches. */
+    List<CardDto> filter(CardBatch batchOut, String lang, Set<String> seen) {
+        int beforeFilter = batchOut.cards().size();
 
         List<CardDto> filtered = batchOut.cards().stream()
-                .filter(Objects::nonNull)
-                .filter(card -> lang.equalsIgnoreCase(card.language()))
-                .filter(CardService::valid)
-                .filter(card -> nonDuplicateTarget(card, seen))
-                .filter(CardService::nonEmptyForbidden)
-                .filter(CardService::maxForbidden)
-                .filter(SafetyFilters::isFamilyFriendly)
-                .filter(SafetyFilters::passesStemExclusion)
-                .filter(card -> seen.add(card.target().toLowerCase()))
-                .limit(count)
+                .filter(card -> accepts(card, lang, seen))
                 .collect(Collectors.toList());
 
         log.info("GEN parsed beforeFilter={} afterFilter={}", beforeFilter, filtered.size());
@@ -62,12 +163,152 @@ public class CardService {
         return filtered;
     }
 
+    /** The filter chain for a single card; registers the card's normalized target in {@code seen}. */
+    boolean accepts(CardDto card, String lang, Set<String> seen) {
+        FilterStage rejectedAt = rejectedAt(card, lang, seen);
+        if (rejectedAt == null) {
+            filterAccepted.increment();
+            return true;
+        }
+        filterRejected.get(rejectedAt).increment();
+        return false;
+    }
+
+    /** The first stage that rejects {@code card}, or null when it passes all of them. */
+    private static FilterStage rejectedAt(CardDto card, String lang, Set<String> seen) {
+        if (card == null || !lang.equalsIgnoreCase(card.language())) return FilterStage.LANGUAGE;
+        if (!valid(card)) return FilterStage.BLANK;
+        if (!nonDuplicateTarget(card, seen)) return FilterStage.DUPLICATE;
+        if (!nonEmptyForbidden(card) || !maxForbidden(card)) return FilterStage.FORBIDDEN_COUNT;
+        if (!SafetyFilters.isFamilyFriendly(card)) return FilterStage.PROFANITY;
+        if (!SafetyFilters.passesStemExclusion(card)) return FilterStage.STEM;
+        // a concurrently filtered batch may have claimed the same target since the duplicate check
+        if (!seen.add(TextNorm.normLower(card.target()))) return FilterStage.DUPLICATE;
+        return null;
+    }
+
+    /**
+     * Streams one generation call: cards are parsed as soon as their JSON object is complete,
+     * run through the filter chain and handed to {@code onCard} one at a time. The caller acquires
+     * {@code permit} from the {@link OpenAiBulkhead} before committing its response; it is released
+     * as soon as the model stream has ended.
+     *
+     * @return number of accepted cards
+     */
+    public int streamGenerate(String lang, String category, String difficulty, int count,
+                              OpenAiBulkhead.Permit permit, Consumer<CardDto> onCard) throws IOException {
+        int batch = Math.min(count, maxGenCount);
+        log.info("GEN stream start model={} lang={} cat={} diff={} count={}", props.getModel(), lang, category, difficulty, batch);
+        long startPromptTimer = System.currentTimeMillis();
+
+        StructuredResponseCreateParams<CardBatch> request = ResponseCreateParams.builder()
+                .model(props.getModel())
+                .input(getPrompt(lang, category, difficulty, batch))
+                .text(CardBatch.class)
+                .build();
+
+        int accepted;
+        try (permit) {
+            accepted = streamCards(request, lang, category, difficulty, batch, onCard);
+        }
+
+        log.info("GEN stream done durationMs={} accepted={}", System.currentTimeMillis() - startPromptTimer, accepted);
+        return accepted;
+    }
+
+    private int streamCards(StructuredResponseCreateParams<CardBatch> request, String lang, String category,
+                            String difficulty, int batch, Consumer<CardDto> onCard) throws IOException {
+        var parser = new CardStreamParser();
+        Set<String> seen = new HashSet<>();
+        int parsed = 0;
+        int accepted = 0;
+        try (StreamResponse<ResponseStreamEvent> stream = openAI.responses().createStreaming(request)) {
+            Iterator<ResponseStreamEvent> events = stream.stream().iterator();
+            while (events.hasNext() && accepted < batch) {
+                ResponseStreamEvent event = events.next();
+                event.completed().map(ResponseCompletedEvent::response)
+                        .flatMap(response -> response.usage())
+                        .ifPresent(usage -> recordUsage(usage, lang, category, difficulty));
+                Optional<String> delta = event.outputTextDelta().map(ResponseTextDeltaEvent::delta);
+                if (delta.isEmpty()) continue;
+
+                for (String json : parser.accept(delta.get())) {
+                    parsed++;
+                    CardDto card = parseStreamedCard(json);
+                    if (card != null && accepted < batch && accepts(card, lang, seen)) {
+                        accepted++;
+                        onCard.accept(card);
+                    }
+                }
+            }
+        }
+
+        log.info("GEN stream parsed={} accepted={}", parsed, accepted);
+        return accepted;
+    }
+
+    /** One streamed card object, or null (counted as {@code malformed}) when it does not parse. */
+    CardDto parseStreamedCard(String json) {
+        try {
+            return objectMapper.readValue(json, CardDto.class);
+        } catch (JsonProcessingException e) {
+            filterRejected.get(FilterStage.MALFORMED).increment();
+            log.debug("GEN stream skipped malformed card: {}", e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Runs the sub-batches of one round and cancels whatever is still running after
+     * {@code timeoutNanos}; a single batch goes through the same deadline.
+     */
+    private List<CardDto> runBatches(List<Callable<List<CardDto>>> batches, long timeoutNanos) throws IOException {
+        var limit = new Semaphore(fanOutConcurrency);
+        List<Callable<List<CardDto>>> limited = batches.stream()
+                .<Callable<List<CardDto>>>map(batch -> () -> {
+                    limit.acquire();
+                    try {
+                        return batch.call();
+                    } finally {
+                        limit.release();
+                    }
+                })
+                .toList();
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<CardDto> out = new ArrayList<>();
+            Throwable firstFailure = null;
+            for (Future<List<CardDto>> future : executor.invokeAll(limited, timeoutNanos, TimeUnit.NANOSECONDS)) {
+                try {
+                    out.addAll(future.get());
+                } catch (CancellationException e) {
+                    log.info("GEN sub-batch cancelled at deadline");
+                } catch (ExecutionException e) {
+                    log.info("GEN sub-batch failed {}", e.getCause().getMessage());
+                    if (firstFailure == null) firstFailure = e.getCause();
+                }
+            }
+            if (out.isEmpty() && firstFailure != null) {
+                if (firstFailure instanceof IOException io) throw io;
+                if (firstFailure instanceof RuntimeException re) throw re;
+                throw new IllegalStateException(firstFailure);
+            }
+            return out;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating cards", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private static boolean valid(CardDto card) {
         return card.target() != null && !card.target().isBlank();
     }
 
-    private static boolean nonDuplicateTarget(CardDto card, HashSet<String> seen) {
-        return !seen.contains(card.target().toLowerCase());
+    private static boolean nonDuplicateTarget(CardDto card, Set<String> seen) {
+        return !seen.contains(TextNorm.normLower(card.target()));
     }
 
     private static boolean nonEmptyForbidden(CardDto card) {
@@ -78,7 +319,8 @@ public class CardService {
         return card.forbidden().size() <= 7;
     }
 
-    private CardBatch requestBatch(String lang, String category, String difficulty, int count) throws IOException {
+    /** One model call for {@code count} cards; package-private so tests can stub the model. */
+    CardBatch requestBatch(String lang, String category, String difficulty, int count) throws IOException {
 
 
         long startPromptTimer = System.currentTimeMillis();
@@ -89,7 +331,20 @@ public class CardService {
                 .text(CardBatch.class)
                 .build();
 
-        StructuredResponse<CardBatch> response = openAI.responses().create(requestBuilder);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        StructuredResponse<CardBatch> response;
+        try {
+            response = bulkhead.call(() -> openAI.responses().create(requestBuilder));
+            outcome = "success";
+        } finally {
+            sample.stop(Timer.builder("openai.request")
+                    .tag("model", props.getModel())
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        response.usage().ifPresent(usage -> recordUsage(usage, lang, category, difficulty));
 
         CardBatch parsed = response.output().stream()
                 .flatMap(item -> item.message().stream())
@@ -110,12 +365,38 @@ public class CardService {
         return parsed != null ? parsed : new CardBatch(List.of());
     }
 
+    /**
+     * Token counters per model and deck, for LLM spend. Deck parameters come straight from the
+     * request, so only decks listed in {@code token-decks} get their own series.
+     */
+    private void recordUsage(ResponseUsage usage, String lang, String category, String difficulty) {
+        tokenCounter("input", lang, category, difficulty).increment(usage.inputTokens());
+        tokenCounter("output", lang, category, difficulty).increment(usage.outputTokens());
+    }
+
+    Counter tokenCounter(String type, String lang, String category, String difficulty) {
+        boolean tracked = tokenDecks.contains(lang + ":" + category + ":" + difficulty);
+        return meterRegistry.counter("openai.tokens",
+                "model", props.getModel(),
+                "type", type,
+                "language", tracked ? lang : "other",
+                "category", tracked ? category : "other",
+                "difficulty", tracked ? difficulty : "other");
+    }
+
     private String getPrompt(String lang, String category, String difficulty, int count) throws IOException {
         String promptTemplate = loadConfig("openai", promptTemplateFile);
         return promptTemplate
                 .replace("{LANG}", lang)
                 .replace("{COUNT}", Integer.toString(count))
                 .replace("{CATEGORY}", category)
-                .replace("{DIFFICULTY}", difficulty);
+                .replace("{DIFFICULTY}", difficulty)
+                .replace("{EXCLUDE}", exclusionHint(lang));
+    }
+
+    /** A sample of existing targets the model should not repeat; {@code prompt-exclusion-size=0} disables it. */
+    private String exclusionHint(String lang) {
+        List<String> existing = normTargetIndex.sampleTargets(lang, promptExclusionSize);
+        return existing.isEmpty() ? "(none)" : String.join(", ", existing);
     }
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.util.CardCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * Keeps a gzip-compressed JSON array of every requested deck (oldest card first) on local disk,
+ * so a full deck is served straight from a file. A bundle is built from MySQL on first use; after
+ * that only cards inserted past its watermark are read, serialized and appended.
+ * <p>
+ * Next to each bundle sits an uncompressed sidecar with the array elements. Appends extend the
+ * sidecar and compress it into a new single-member gzip file (some clients, e.g. Okio, read only
+ * one member), so a bundle is never decompressed.
+ * <p>
+ * Bundle files are immutable: every change writes a new file and the previous one is deleted once
+ * in-flight responses are done with it. All builds and appends run on one thread, so a deck never
+ * has two writers. Appends wait for the sync settle window, like {@link DeckSyncService}.
+ */
+@Slf4j
+@Component
+public class DeckBundleStore {
+    private static final int PAGE_SIZE = 1000;
+    private static final String FILE_PREFIX = "deck-";
+    private static final String FILE_SUFFIX = ".json.gz";
+    private static final String ELEMENTS_SUFFIX = ".json.part";
+    private static final Duration RETAIN_REPLACED = Duration.ofMinutes(5);
+    private static final Duration RECHECK_EMPTY = Duration.ofMinutes(1);
+
+    private final CardReadDao reader;
+    private final ObjectMapper objectMapper;
+    private final Path dir;
+    private final Duration settle;
+    private final ScheduledExecutorService executor;
+    private final Map<DeckKey, DeckBundle> bundles = new ConcurrentHashMap<>();
+    private final Set<DeckKey> pending = ConcurrentHashMap.newKeySet();
+    /** Decks found empty (or unknown), so repeated requests don't queue a scan each. */
+    private final Cache<DeckKey, Boolean> empty = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(RECHECK_EMPTY)
+            .build();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public DeckBundleStore(CardReadDao reader,
+                           ObjectMapper objectMapper,
+                           @Value("${app.config.bundles.dir}") Path dir,
+                           @Value("${app.config.bundles.settle-seconds}") long settleSeconds) throws IOException {
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+        this.dir = Files.createDirectories(dir);
+        this.settle = Duration.ofSeconds(settleSeconds);
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("deck-bundles").daemon().factory());
+        deleteLeftovers();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Current bundle of a deck, built on first use; {@code null} when the deck has no cards. */
+    public DeckBundle bundle(String lang, String category, String difficulty) {
+        DeckKey key = new DeckKey(lang, category, difficulty);
+        DeckBundle bundle = bundles.get(key);
+        if (bundle != null || empty.getIfPresent(key) != null) return bundle;
+
+        try {
+            return executor.submit(() -> build(key)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building bundle of " + key, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build bundle of " + key, e.getCause());
+        }
+    }
+
+    /**
+     * Schedules an append of the cards just inserted into {@code keys}. Decks without a bundle are
+     * only forgotten as empty when the task runs, so the next request builds them; repeated calls
+     * within the settle window share one append.
+     */
+    public void changed(Collection<DeckKey> keys) {
+        for (DeckKey key : keys) {
+            if (!pending.add(key)) continue;
+            executor.schedule(() -> {
+                pending.remove(key);
+                if (!bundles.containsKey(key)) {
+                    empty.invalidate(key);
+                    return;
+                }
+                try {
+                    refresh(key);
+                } catch (Exception e) {
+                    log.warn("BUNDLE append failed deck={}: {}", key, e.getMessage());
+                }
+            }, settle.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Runs on the bundle thread; requests queued behind the first scan of an empty deck skip theirs. */
+    private DeckBundle build(DeckKey key) throws IOException {
+        DeckBundle bundle = bundles.get(key);
+        if (bundle != null || empty.getIfPresent(key) != null) return bundle;
+        bundle = refresh(key);
+        if (bundle == null) empty.put(key, Boolean.TRUE);
+        return bundle;
+    }
+
+    private DeckBundle refresh(DeckKey key) throws IOException {
+        DeckBundle current = bundles.get(key);
+        CardCursor watermark = current == null ? null : current.watermark();
+        Instant before = Instant.now().minus(settle);
+
+        List<CardDto> added = new ArrayList<>();
+        List<DeckEntry> page;
+        do {
+            page = reader.drawSince(key.language(), key.category(), key.difficulty(), PAGE_SIZE, watermark, before);
+            for (DeckEntry entry : page) added.add(entry.card());
+            if (!page.isEmpty()) watermark = page.getLast().cursor();
+        } while (page.size() == PAGE_SIZE);
+
+        if (added.isEmpty()) return current;
+
+        DeckBundle next = write(current, added, watermark);
+        bundles.put(key, next);
+        if (current != null) {
+            executor.schedule(() -> delete(current.file()), RETAIN_REPLACED.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        log.info("BUNDLE deck={} appended={} cards={} bytes={}", key, added.size(), next.cards(), next.length());
+        return next;
+    }
+
+    private DeckBundle write(DeckBundle current, List<CardDto> added, CardCursor watermark) throws IOException {
+        Path elements = current == null
+                ? dir.resolve(FILE_PREFIX + sequence.incrementAndGet() + ELEMENTS_SUFFIX)
+                : current.elements();
+        long appendedAt = current == null ? 0 : Files.size(elements);
+        Path file = dir.resolve(FILE_PREFIX + sequence.incrementAndGet() + FILE_SUFFIX);
+
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(elements,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                boolean first = appendedAt == 0;
+                for (CardDto card : added) {
+                    if (!first) out.write(',');
+                    out.write(objectMapper.writeValueAsBytes(card));
+                    first = false;
+                }
+            }
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)))) {
+                out.write('[');
+                Files.copy(elements, out);
+                out.write(']');
+            }
+        } catch (IOException e) {
+            // roll the sidecar back so that the next refresh appends these cards again
+            delete(file);
+            if (current == null) {
+                delete(elements);
+            } else {
+                try (FileChannel channel = FileChannel.open(elements, StandardOpenOption.WRITE)) {
+                    channel.truncate(appendedAt);
+                }
+            }
+            throw e;
+        }
+
+        int cards = (current == null ? 0 : current.cards()) + added.size();
+        return new DeckBundle(file, elements, Files.size(file), cards, watermark, Instant.now());
+    }
+
+    private void deleteLeftovers() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, FILE_PREFIX + "*")) {
+            for (Path file : files) delete(file);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("BUNDLE could not delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    /** An immutable, gzip-compressed bundle file, its deck's sidecar and the position of its newest card. */
+    public record DeckBundle(Path file, Path elements, long length, int cards, CardCursor watermark, Instant modified) {
+        /** Strong validator of the gzip bytes or of the decompressed JSON; they must differ. */
+        public String etag(boolean gzip) {
+            return "\"" + cards + "-" + modified.toEpochMilli() + (gzip ? "-gzip" : "") + "\"";
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.repository.ReplicaDataSource;
+import ch.guessthat.util.CardCursor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * Keeps the newest cards of each (language, category, difficulty) deck in memory so that
+ * {@code /draw} is served without touching MySQL. Weighted by card count and invalidated
+ * by {@link CardPersistenceService} whenever new cards are inserted into a deck. The deck's
+ * {@link DeckVersion} is cached alongside so conditional requests are answered from memory.
+ */
+@Slf4j
+@Component
+public class DeckCache {
+    private final CardReadDao reader;
+    private final Cache<DeckKey, CachedDeck> cache;
+    private final Cache<DeckKey, DeckVersion> versions;
+    private final int maxCardsPerDeck;
+
+    public DeckCache(
+            CardReadDao reader,
+            MeterRegistry meterRegistry,
+            @Value("${app.config.deck-cache.max-cards-per-deck}") int maxCardsPerDeck,
+            @Value("${app.config.deck-cache.max-total-cards}") long maxTotalCards,
+            @Value("${app.config.deck-cache.ttl-minutes}") long ttlMinutes) {
+        this.reader = reader;
+        this.maxCardsPerDeck = maxCardsPerDeck;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxTotalCards)
+                .weigher((DeckKey key, CachedDeck deck) -> deck.entries().size())
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "deckCache");
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "deckVersionCache");
+    }
+
+    public DeckVersion version(String lang, String category, String difficulty) {
+        return versions.get(new DeckKey(lang, category, difficulty),
+                key -> ReplicaDataSource.onPrimary(() -> reader.deckVersion(key.language(), key.category(), key.difficulty())));
+    }
+
+    public List<CardDto> drawLatest(String lang, String category, String difficulty, int count, int offset) {
+        if ((long) offset + count > maxCardsPerDeck) {
+            return reader.drawLatest(lang, category, difficulty, count, offset);
+        }
+
+        CachedDeck deck = cache.get(new DeckKey(lang, category, difficulty), this::load);
+        return cards(deck.slice(offset, count));
+    }
+
+    /**
+     * Cursor-paged variant of {@link #drawLatest}. Pages inside the cached window are sliced from
+     * memory; a cursor that points past the window continues with a keyset seek in MySQL.
+     */
+    public CardPage drawPage(String lang, String category, String difficulty, int count, String cursor) {
+        CardCursor after = cursor == null || cursor.isBlank() ? null : CardCursor.decode(cursor);
+        CachedDeck deck = cache.get(new DeckKey(lang, category, difficulty), this::load);
+
+        int start = after == null ? 0 : deck.positionAfter(after.id());
+        List<DeckEntry> entries = start >= 0 && (deck.complete() || start + count <= deck.entries().size())
+                ? deck.slice(start, count)
+                : reader.drawLatestAfter(lang, category, difficulty, count, after);
+
+        String next = entries.size() < count ? null : entries.getLast().cursor().encode();
+        return new CardPage(cards(entries), next);
+    }
+
+    /**
+     * Random draws are sampled in memory when the whole deck fits into the cached window,
+     * otherwise they use the indexed sampler of {@link CardReadDao#drawRandom}.
+     */
+    public List<CardDto> drawRandom(String lang, String category, String difficulty, int count) {
+        CachedDeck deck = cache.get(new DeckKey(lang, category, difficulty), this::load);
+        if (!deck.complete()) {
+            return reader.drawRandom(lang, category, difficulty, count);
+        }
+
+        List<CardDto> shuffled = new ArrayList<>(cards(deck.entries()));
+        Collections.shuffle(shuffled, ThreadLocalRandom.current());
+        return List.copyOf(shuffled.subList(0, Math.min(count, shuffled.size())));
+    }
+
+    public void invalidate(Collection<DeckKey> keys) {
+        if (keys.isEmpty()) return;
+        cache.invalidateAll(keys);
+        versions.invalidateAll(keys);
+        log.debug("CACHE invalidated decks={}", keys);
+    }
+
+    /** Loaded from the primary: an entry read from a lagging replica would stay stale until the TTL. */
+    private CachedDeck load(DeckKey key) {
+        List<DeckEntry> entries = ReplicaDataSource.onPrimary(() ->
+                reader.drawLatestAfter(key.language(), key.category(), key.difficulty(), maxCardsPerDeck + 1, null));
+        boolean complete = entries.size() <= maxCardsPerDeck;
+        log.debug("CACHE load deck={} cards={} complete={}", key, entries.size(), complete);
+
+        List<DeckEntry> kept = entries.stream().limit(maxCardsPerDeck).map(DeckCache::immutable).toList();
+        Map<String, Integer> positions = HashMap.newHashMap(kept.size());
+        for (int i = 0; i < kept.size(); i++) positions.put(kept.get(i).card().id(), i);
+        return new CachedDeck(kept, Map.copyOf(positions), complete);
+    }
+
+    private static DeckEntry immutable(DeckEntry entry) {
+        CardDto card = entry.card();
+        return new DeckEntry(new CardDto(card.id(), card.language(), card.category(), card.difficulty(),
+                card.target(), List.copyOf(card.forbidden())), entry.cursor());
+    }
+
+    private static List<CardDto> cards(List<DeckEntry> entries) {
+        return entries.stream().map(DeckEntry::card).toList();
+    }
+
+    /**
+     * Newest-first, immutable slice of a deck; at most {@code maxCardsPerDeck} cards.
+     * {@code complete} is set when the slice holds the entire deck.
+     */
+    private record CachedDeck(List<DeckEntry> entries, Map<String, Integer> positionById, boolean complete) {
+
+        List<DeckEntry> slice(int offset, int count) {
+            if (offset >= entries.size()) return List.of();
+            return entries.subList(offset, Math.min(entries.size(), offset + count));
+        }
+
+        /** Index of the first entry after the card with {@code id}, or -1 when it is not cached. */
+        int positionAfter(String id) {
+            Integer position = positionById.get(id);
+            return position == null ? -1 : position + 1;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.util.CardCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * Incremental deck sync for the app: given the watermark of the last card a device has seen,
+ * returns the cards inserted after it in (created_at, id) order, so a sync costs the size of the
+ * change set rather than of the deck.
+ * <p>
+ * {@code created_at} is stamped by MySQL when the insert statement runs, so a transaction can commit
+ * a card that sorts before a watermark already handed out. Cards younger than {@code settle} are
+ * therefore withheld until their insert has surely committed.
+ */
+@Slf4j
+@Service
+public class DeckSyncService {
+    private final CardReadDao reader;
+    private final Duration settle;
+
+    public DeckSyncService(CardReadDao reader,
+                           @Value("${app.config.sync.settle-seconds}") long settleSeconds) {
+        this.reader = reader;
+        this.settle = Duration.ofSeconds(settleSeconds);
+    }
+
+    public SyncPage since(String lang, String category, String difficulty, int count, String watermark) {
+        CardCursor after = watermark == null || watermark.isBlank() ? null : CardCursor.decode(watermark);
+        List<DeckEntry> entries = reader.drawSince(lang, category, difficulty, count + 1, after,
+                Instant.now().minus(settle));
+
+        boolean more = entries.size() > count;
+        List<DeckEntry> page = more ? entries.subList(0, count) : entries;
+        String next = page.isEmpty() ? (after == null ? null : after.encode()) : page.getLast().cursor().encode();
+        log.debug("SYNC deck={}:{}:{} cards={} more={}", lang, category, difficulty, page.size(), more);
+        return new SyncPage(page.stream().map(DeckEntry::card).toList(), next, more);
+    }
+}
@@ -0,0 +1,122 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * "No repeats" draws for a game session. Each (session, deck) pair keeps a Roaring bitmap of the
+ * {@code deck_ordinal}s it has been dealt, so a draw picks unseen ordinals in memory and fetches
+ * exactly those cards with index seeks. A session that has seen every card of a 100k-card deck
+ * holds about 13 KB; sessions expire after {@code ttl-minutes} without a draw.
+ * <p>
+ * Session ids are chosen by the client (one per game); an unknown id starts a fresh session.
+ */
+@Slf4j
+@Service
+public class DrawSessionService {
+    public static final int MAX_SESSION_ID_LENGTH = 64;
+
+    private final CardReadDao reader;
+    private final DeckCache deckCache;
+    private final Cache<SessionKey, RoaringBitmap> sessions;
+
+    public DrawSessionService(
+            CardReadDao reader,
+            DeckCache deckCache,
+            MeterRegistry meterRegistry,
+            @Value("${app.config.draw-session.max-sessions}") long maxSessions,
+            @Value("${app.config.draw-session.ttl-minutes}") long ttlMinutes) {
+        this.reader = reader;
+        this.deckCache = deckCache;
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "drawSessions");
+    }
+
+    /**
+     * Up to {@code count} cards of the deck that this session has not been dealt yet, newest first
+     * or in random order. Returns fewer (eventually none) once the session has seen the whole deck.
+     */
+    public List<CardDto> draw(String session, String lang, String category, String difficulty, int count, boolean random) {
+        if (session.isBlank() || session.length() > MAX_SESSION_ID_LENGTH) {
+            throw new IllegalArgumentException("Invalid session id");
+        }
+        long deckSize = deckCache.version(lang, category, difficulty).cards();
+        RoaringBitmap seen = sessions.get(new SessionKey(session, new DeckKey(lang, category, difficulty)),
+                key -> new RoaringBitmap());
+
+        // reserved up front so concurrent draws of one session cannot pick the same ordinals
+        List<Integer> ordinals;
+        synchronized (seen) {
+            RoaringBitmap unseen = RoaringBitmap.flip(seen, 0L, deckSize);
+            ordinals = random ? sample(unseen, count) : newest(unseen, count);
+            ordinals.forEach(seen::add);
+        }
+
+        // deckSize is cached and the read may hit a lagging replica: release ordinals that did not come back
+        Map<Integer, CardDto> found = Map.of();
+        try {
+            found = reader.drawOrdinals(lang, category, difficulty, ordinals);
+        } finally {
+            synchronized (seen) {
+                for (Integer ordinal : ordinals) {
+                    if (!found.containsKey(ordinal)) seen.remove(ordinal);
+                }
+                seen.runOptimize();
+            }
+        }
+
+        List<CardDto> cards = List.copyOf(found.values());
+        log.debug("SESSION draw session={} deck={}:{}:{} dealt={} deckSize={}",
+                session, lang, category, difficulty, cards.size(), deckSize);
+        return cards;
+    }
+
+    private static List<Integer> newest(RoaringBitmap unseen, int count) {
+        List<Integer> out = new ArrayList<>(Math.min(count, unseen.getCardinality()));
+        IntIterator it = unseen.getReverseIntIterator();
+        while (out.size() < count && it.hasNext()) out.add(it.next());
+        return out;
+    }
+
+    /** {@code count} distinct random members of {@code unseen}, by rank (Floyd's sampling). */
+    private static List<Integer> sample(RoaringBitmap unseen, int count) {
+        int size = unseen.getCardinality();
+        if (size <= count) {
+            List<Integer> all = new ArrayList<>(size);
+            unseen.forEach((int ordinal) -> all.add(ordinal));
+            Collections.shuffle(all, ThreadLocalRandom.current());
+            return all;
+        }
+
+        var random = ThreadLocalRandom.current();
+        Set<Integer> ranks = new LinkedHashSet<>(count * 2);
+        for (int j = size - count; j < size; j++) {
+            int rank = random.nextInt(j + 1);
+            if (!ranks.add(rank)) ranks.add(j);
+        }
+        List<Integer> out = new ArrayList<>(count);
+        for (int rank : ranks) out.add(unseen.select(rank));
+        Collections.shuffle(out, random);
+        return out;
+    }
+
+    private record SessionKey(String session, DeckKey deck) {}
+}
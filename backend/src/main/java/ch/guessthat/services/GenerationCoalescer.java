@@ -0,0 +1,99 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.repository.ReplicaDataSource;
+import ch.guessthat.util.TextNorm;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * Single-flight generation per deck: while a generation for a deck is running, identical
+ * requests wait for it instead of sending the same prompt to OpenAI again. The cards are stored
+ * once, by the caller that generated them; each joiner then draws its {@code count} at random from
+ * the refreshed deck (on the primary), leaving out the leader's cards. A request asking for more
+ * cards than the running one generates on its own.
+ */
+@Slf4j
+@Service
+public class GenerationCoalescer {
+    private final CardService cardService;
+    private final CardPersistenceService cardPersistenceService;
+    private final CardReadDao reader;
+    private final Map<DeckKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    private record Flight(int count, CompletableFuture<GenerationResult> result) {}
+
+    public GenerationCoalescer(CardService cardService, CardPersistenceService cardPersistenceService,
+                               CardReadDao reader, MeterRegistry meterRegistry) {
+        this.cardService = cardService;
+        this.cardPersistenceService = cardPersistenceService;
+        this.reader = reader;
+        this.coalesced = meterRegistry.counter("cards.generation.coalesced");
+    }
+
+    /** Generates (or joins a running generation of) {@code count} cards and stores the new ones. */
+    public GenerationResult generateAndStore(String lang, String category, String difficulty, int count) throws IOException {
+        DeckKey deck = new DeckKey(lang, category, difficulty);
+        var flight = new Flight(count, new CompletableFuture<>());
+        Flight running = inFlight.putIfAbsent(deck, flight);
+        if (running != null && count <= running.count()) {
+            coalesced.increment();
+            log.info("GEN coalesced deck={} n={} into running n={}", deck, count, running.count());
+            List<CardDto> shared = await(running.result()).cards();
+            return new GenerationResult(joinerCards(deck, count, shared), 0);
+        }
+
+        try {
+            List<CardDto> generated = cardService.getOrGenerate(lang, category, difficulty, count);
+            List<CardDto> inserted = cardPersistenceService.storeOnlyNew(generated);
+            var result = new GenerationResult(generated, inserted.size());
+            flight.result().complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            flight.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(deck, flight);
+        }
+    }
+
+    /** {@code count} random cards of the deck other than the leader's; topped up from those when the deck is too small. */
+    private List<CardDto> joinerCards(DeckKey deck, int count, List<CardDto> shared) {
+        Set<String> leaders = new HashSet<>();
+        for (CardDto card : shared) leaders.add(TextNorm.normLower(card.target()));
+        List<CardDto> drawn = ReplicaDataSource.onPrimary(() ->
+                reader.drawRandom(deck.language(), deck.category(), deck.difficulty(), count + shared.size()));
+
+        List<CardDto> out = new ArrayList<>(count);
+        for (CardDto card : drawn) {
+            if (out.size() == count) break;
+            if (!leaders.contains(TextNorm.normLower(card.target()))) out.add(card);
+        }
+        for (int i = 0; out.size() < count && i < shared.size(); i++) out.add(shared.get(i));
+        return out;
+    }
+
+    private static GenerationResult await(CompletableFuture<GenerationResult> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for generation", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ch.guessthat.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * Asynchronous variant of {@code /download}: jobs are queued on the generation executor and
+ * their state is kept in memory until {@code job-ttl-minutes} after they finished.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GenerationJobService {
+    private final GenerationCoalescer generationCoalescer;
+    private final ThreadPoolExecutor generationExecutor;
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${app.config.generation.job-ttl-minutes}")
+    private long jobTtlMinutes;
+
+    /**
+     * @throws RejectedExecutionException when the generation queue is full
+     */
+    public GenerationJob submit(String lang, String category, String difficulty, int count) {
+        var job = new GenerationJob(UUID.randomUUID().toString(), JobStatus.QUEUED, lang, category, difficulty,
+                count, Instant.now(), null, null, null, null);
+        jobs.put(job.id(), job);
+        try {
+            generationExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id());
+            log.info("JOB rejected lang={} cat={} diff={} n={} queued={}",
+                    lang, category, difficulty, count, generationExecutor.getQueue().size());
+            throw e;
+        }
+        log.info("JOB queued id={} lang={} cat={} diff={} n={}", job.id(), lang, category, difficulty, count);
+        return job;
+    }
+
+    public Optional<GenerationJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(GenerationJob job) {
+        jobs.put(job.id(), job.running());
+        try {
+            GenerationResult result = generationCoalescer.generateAndStore(
+                    job.language(), job.category(), job.difficulty(), job.requested());
+            jobs.put(job.id(), job.done(result.cards(), result.inserted()));
+            log.info("JOB done id={} generated={} inserted={}", job.id(), result.cards().size(), result.inserted());
+        } catch (Exception e) {
+            jobs.put(job.id(), job.failed(e.getMessage()));
+            log.info("JOB failed id={} error={}", job.id(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.config.generation.job-eviction-interval-ms}")
+    void evictExpired() {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(jobTtlMinutes));
+        jobs.values().removeIf(job -> job.finishedAt() != null && job.finishedAt().isBefore(cutoff));
+    }
+}
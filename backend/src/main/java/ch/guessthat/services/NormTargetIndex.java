@@ -0,0 +1,108 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static ch.guessthat.records.RecordManager.DeckKey;
+
+/**
+ * Recently stored {@code norm_target}s per language, a bounded cache in front of
+ * {@code uq_cards_lang_norm}, so known duplicates are recognised without a round trip to MySQL.
+ * Holds at most {@code max-targets}; at startup it loads the newest cards of every deck, an equal
+ * share each. Also keeps a bounded pool of recently seen targets per language that
+ * {@link CardService} lists in the prompt as targets to avoid. The unique key stays the authority
+ * for evicted targets, cards written by other instances and anything stored before the load ends.
+ */
+@Slf4j
+@Component
+public class NormTargetIndex {
+    private final CardReadDao reader;
+    private final int hintPoolSize;
+    private final int maxTargets;
+    private final Cache<Target, Boolean> normTargets;
+    private final Map<String, HintPool> hints = new ConcurrentHashMap<>();
+
+    public NormTargetIndex(CardReadDao reader, MeterRegistry meterRegistry,
+                           @Value("${app.config.norm-index.hint-pool-size}") int hintPoolSize,
+                           @Value("${app.config.norm-index.max-targets}") int maxTargets) {
+        this.reader = reader;
+        this.hintPoolSize = hintPoolSize;
+        this.maxTargets = maxTargets;
+        this.normTargets = Caffeine.newBuilder()
+                .maximumSize(maxTargets)
+                .executor(Runnable::run)
+                .build();
+        Gauge.builder("cards.norm-index.size", normTargets, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        Set<DeckKey> decks = reader.countByDeck().keySet();
+        if (decks.isEmpty()) return;
+        int perDeck = Math.max(1, maxTargets / decks.size());
+        for (DeckKey deck : decks) reader.forEachRecentTarget(deck, perDeck, this::add);
+        log.info("DB norm index loaded decks={} perDeck={} targets={} durationMs={}",
+                decks.size(), perDeck, normTargets.estimatedSize(), System.currentTimeMillis() - start);
+    }
+
+    public boolean contains(String lang, String normTarget) {
+        return normTargets.getIfPresent(new Target(lang, normTarget)) != null;
+    }
+
+    /** Records a target that now exists in the database. */
+    public void add(String lang, String normTarget, String target) {
+        if (normTargets.asMap().putIfAbsent(new Target(lang, normTarget), Boolean.TRUE) == null) {
+            hints.computeIfAbsent(lang, k -> new HintPool(hintPoolSize)).add(target);
+        }
+    }
+
+    /** Up to {@code count} random existing targets of {@code lang}. */
+    public List<String> sampleTargets(String lang, int count) {
+        HintPool pool = hints.get(lang);
+        if (pool == null || count <= 0) return List.of();
+        List<String> targets = pool.snapshot();
+        Collections.shuffle(targets);
+        return targets.subList(0, Math.min(count, targets.size()));
+    }
+
+    private record Target(String language, String normTarget) {}
+
+    /** Ring buffer of the most recently added targets. */
+    private static final class HintPool {
+        private final String[] targets;
+        private int next;
+        private int filled;
+
+        HintPool(int capacity) {
+            this.targets = new String[Math.max(1, capacity)];
+        }
+
+        synchronized void add(String target) {
+            targets[next] = target;
+            next = (next + 1) % targets.length;
+            filled = Math.min(filled + 1, targets.length);
+        }
+
+        synchronized List<String> snapshot() {
+            List<String> out = new ArrayList<>(filled);
+            for (int i = 0; i < filled; i++) out.add(targets[i]);
+            return out;
+        }
+    }
+}
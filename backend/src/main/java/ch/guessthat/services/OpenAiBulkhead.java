@@ -0,0 +1,87 @@
+package ch.guessthat.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of OpenAI calls in flight across all requests, jobs and fan-out sub-batches.
+ * Callers wait up to {@code openai-acquire-timeout-seconds} for a permit and are rejected after that.
+ */
+@Slf4j
+@Component
+public class OpenAiBulkhead {
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long acquireTimeoutSeconds;
+    private final Timer waitTimer;
+
+    /** An OpenAI call; may throw the same checked exception as the generation methods. */
+    @FunctionalInterface
+    public interface Call<T> {
+        T run() throws IOException;
+    }
+
+    public OpenAiBulkhead(MeterRegistry meterRegistry,
+                          @Value("${app.config.generation.openai-max-concurrent}") int maxConcurrent,
+                          @Value("${app.config.generation.openai-acquire-timeout-seconds}") long acquireTimeoutSeconds) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutSeconds = acquireTimeoutSeconds;
+        this.waitTimer = meterRegistry.timer("openai.bulkhead.wait");
+        Gauge.builder("openai.bulkhead.active", permits, p -> maxConcurrent - p.availablePermits()).register(meterRegistry);
+    }
+
+    /** A held permit. {@link #close()} releases it; only the first call has an effect. */
+    public final class Permit implements AutoCloseable {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) permits.release();
+        }
+    }
+
+    /**
+     * Waits for a permit, for callers that must know up front whether the call can run, e.g. to
+     * answer 429 before a streamed response is committed.
+     *
+     * @throws RejectedExecutionException when no permit became free within the acquire timeout
+     */
+    public Permit acquire() {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutSeconds, TimeUnit.SECONDS)) {
+                log.info("GEN bulkhead full maxConcurrent={}", maxConcurrent);
+                throw new RejectedExecutionException("Too many concurrent OpenAI calls");
+            }
+            return new Permit();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an OpenAI permit", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @throws RejectedExecutionException when no permit became free within the acquire timeout
+     */
+    public <T> T call(Call<T> call) throws IOException {
+        try (Permit permit = acquire()) {
+            return call.run();
+        }
+    }
+}
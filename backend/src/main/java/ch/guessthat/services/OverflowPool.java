@@ -0,0 +1,75 @@
+package ch.guessthat.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * Holds valid cards the model returned beyond what a request asked for, per deck, so the next
+ * {@code /download} for that deck is served from here before paying for another LLM call.
+ * The hit rate is {@code cards.overflow.served / cards.overflow.requested}.
+ */
+@Slf4j
+@Component
+public class OverflowPool {
+    private final Map<DeckKey, Deque<CardDto>> pools = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxPerDeck;
+    private final Counter requested;
+    private final Counter served;
+    private final Counter discarded;
+
+    public OverflowPool(MeterRegistry meterRegistry,
+                        @Value("${app.config.overflow-pool.max-per-deck}") int maxPerDeck) {
+        this.maxPerDeck = maxPerDeck;
+        this.requested = meterRegistry.counter("cards.overflow.requested");
+        this.served = meterRegistry.counter("cards.overflow.served");
+        this.discarded = meterRegistry.counter("cards.overflow.discarded");
+        Gauge.builder("cards.overflow.size", size, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /** Removes and returns up to {@code count} pooled cards of {@code deck}. */
+    public List<CardDto> take(DeckKey deck, int count) {
+        requested.increment(count);
+        Deque<CardDto> pool = pools.get(deck);
+        if (pool == null) return List.of();
+
+        List<CardDto> out = new ArrayList<>(Math.min(count, maxPerDeck));
+        CardDto card;
+        while (out.size() < count && (card = pool.pollFirst()) != null) {
+            out.add(card);
+        }
+        size.addAndGet(-out.size());
+        served.increment(out.size());
+        if (!out.isEmpty()) log.info("POOL take deck={} requested={} served={}", deck, count, out.size());
+        return out;
+    }
+
+    public void offer(DeckKey deck, List<CardDto> surplus) {
+        if (surplus.isEmpty()) return;
+        Deque<CardDto> pool = pools.computeIfAbsent(deck, k -> new ConcurrentLinkedDeque<>());
+        int kept = 0;
+        for (CardDto card : surplus) {
+            pool.addLast(card);
+            kept++;
+        }
+        int dropped = 0;
+        while (pool.size() > maxPerDeck && pool.pollFirst() != null) dropped++;
+        size.addAndGet(kept - dropped);
+        discarded.increment(dropped);
+        log.info("POOL offer deck={} surplus={} dropped={}", deck, surplus.size(), dropped);
+    }
+}
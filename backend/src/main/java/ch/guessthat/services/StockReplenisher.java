@@ -0,0 +1,104 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/**
+ * Keeps every deck above a low-watermark by queueing generation jobs in the background, so
+ * players draw from warm stock instead of waiting for the LLM. At most {@code max-concurrent}
+ * replenishments run at once and a deck is not topped up again within its cooldown.
+ * <p>
+ * A deck's stock is the number of cards stored for it ({@code deck_versions.card_count}). Draws
+ * do not consume cards, so stock only grows; the watermark is the deck size worth serving from.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.config.replenish.enabled", havingValue = "true")
+public class StockReplenisher {
+    private final CardReadDao reader;
+    private final GenerationJobService generationJobService;
+    private final int lowWatermark;
+    private final int batchSize;
+    private final int maxConcurrent;
+    private final Duration cooldown;
+    private final Set<DeckKey> configuredDecks;
+
+    private final Map<DeckKey, String> runningJobs = new ConcurrentHashMap<>();
+    private final Map<DeckKey, Instant> lastRun = new ConcurrentHashMap<>();
+
+    public StockReplenisher(
+            CardReadDao reader,
+            GenerationJobService generationJobService,
+            @Value("${app.config.replenish.low-watermark}") int lowWatermark,
+            @Value("${app.config.replenish.batch-size}") int batchSize,
+            @Value("${app.config.replenish.max-concurrent}") int maxConcurrent,
+            @Value("${app.config.replenish.cooldown-minutes}") long cooldownMinutes,
+            @Value("${app.config.replenish.decks:}") List<String> decks) {
+        this.reader = reader;
+        this.generationJobService = generationJobService;
+        this.lowWatermark = lowWatermark;
+        this.batchSize = batchSize;
+        this.maxConcurrent = maxConcurrent;
+        this.cooldown = Duration.ofMinutes(cooldownMinutes);
+        this.configuredDecks = parseDecks(decks);
+    }
+
+    @Scheduled(fixedDelayString = "${app.config.replenish.interval-ms}",
+            initialDelayString = "${app.config.replenish.interval-ms}")
+    void replenish() {
+        runningJobs.entrySet().removeIf(e -> generationJobService.find(e.getValue())
+                .map(job -> job.status() == JobStatus.DONE || job.status() == JobStatus.FAILED)
+                .orElse(true));
+
+        Map<DeckKey, Long> stock = new HashMap<>(reader.countByDeck());
+        configuredDecks.forEach(deck -> stock.putIfAbsent(deck, 0L));
+
+        Instant now = Instant.now();
+        List<Map.Entry<DeckKey, Long>> low = stock.entrySet().stream()
+                .filter(e -> e.getValue() < lowWatermark)
+                .filter(e -> !runningJobs.containsKey(e.getKey()))
+                .filter(e -> !lastRun.getOrDefault(e.getKey(), Instant.MIN).plus(cooldown).isAfter(now))
+                .sorted(Map.Entry.comparingByValue())
+                .toList();
+
+        for (var entry : low) {
+            if (runningJobs.size() >= maxConcurrent) break;
+            DeckKey deck = entry.getKey();
+            try {
+                GenerationJob job = generationJobService.submit(deck.language(), deck.category(), deck.difficulty(), batchSize);
+                runningJobs.put(deck, job.id());
+                lastRun.put(deck, now);
+                log.info("REPLENISH deck={} stock={} watermark={} job={}", deck, entry.getValue(), lowWatermark, job.id());
+            } catch (RejectedExecutionException e) {
+                log.info("REPLENISH generation queue full, retrying next run");
+                break;
+            }
+        }
+    }
+
+    /** Parses {@code lang:category:difficulty} entries of decks that should exist even when empty. */
+    private static Set<DeckKey> parseDecks(List<String> decks) {
+        Set<DeckKey> out = new HashSet<>();
+        for (String deck : decks) {
+            if (deck.isBlank()) continue;
+            String[] parts = deck.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid replenish deck '" + deck + "', expected lang:category:difficulty");
+            }
+            out.add(new DeckKey(parts[0], parts[1], parts[2]));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,40 @@
+package ch.guessthat.util;
+
+import java.util.Locale;
+
+/** {@code Accept-Encoding} negotiation (RFC 9110 §12.5.3) for responses that exist pre-gzipped. */
+public class AcceptEncoding {
+
+    /**
+     * Whether the client accepts gzip: listed as {@code gzip} or {@code x-gzip} with a non-zero
+     * q-value, or not listed at all while {@code *} has one.
+     */
+    public static boolean acceptsGzip(String header) {
+        if (header == null) return false;
+        Double gzip = null;
+        Double any = null;
+        for (String entry : header.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = quality(parts);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) gzip = gzip == null ? q : Math.max(gzip, q);
+            else if (coding.equals("*")) any = q;
+        }
+        if (gzip != null) return gzip > 0;
+        return any != null && any > 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.length() > 2 && param.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
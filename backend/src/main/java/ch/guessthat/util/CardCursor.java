@@ -0,0 +1,29 @@
+package ch.guessthat.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of a card in a deck ordered by (created_at, id). Handed to clients as an opaque,
+ * URL-safe token so the next page can continue with an index seek instead of an OFFSET scan.
+ */
+public record CardCursor(Instant createdAt, String id) {
+
+    public String encode() {
+        String raw = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CardCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            return new CardCursor(
+                    Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                    parts[2]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor '" + token + "'", e);
+        }
+    }
+}
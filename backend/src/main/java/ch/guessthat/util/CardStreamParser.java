@@ -0,0 +1,51 @@
+package ch.guessthat.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incrementally splits a streamed {@code {"cards":[{...},{...}]}} document into the JSON text of
+ * each card as soon as its closing brace arrives. Only tracks nesting depth and string state, so
+ * every character of the stream is looked at once.
+ */
+public class CardStreamParser {
+    private static final int CARD_DEPTH = 3;
+
+    private final StringBuilder current = new StringBuilder(256);
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    /** Feeds the next chunk of model output and returns the cards completed by it. */
+    public List<String> accept(String chunk) {
+        List<String> completed = new ArrayList<>(1);
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (depth >= CARD_DEPTH) current.append(c);
+
+            if (inString) {
+                if (escaped) escaped = false;
+                else if (c == '\\') escaped = true;
+                else if (c == '"') inString = false;
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> inString = true;
+                case '{', '[' -> {
+                    depth++;
+                    if (depth == CARD_DEPTH && c == '{') current.append(c);
+                }
+                case '}', ']' -> {
+                    if (depth == CARD_DEPTH && c == '}') {
+                        completed.add(current.toString());
+                        current.setLength(0);
+                    }
+                    depth--;
+                }
+                default -> { }
+            }
+        }
+        return completed;
+    }
+}
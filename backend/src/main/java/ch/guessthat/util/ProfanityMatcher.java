@@ -0,0 +1,114 @@
+package ch.guessthat.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton answering "does the text contain any of the patterns" in one linear
+ * pass. Patterns and input are expected to be {@link TextNorm#normLower normalized}; the
+ * automaton is compiled into a dense transition table over the characters that occur in the
+ * patterns, so scanning does no allocation and no backtracking.
+ */
+public final class ProfanityMatcher {
+    private static final int ROOT = 0;
+
+    /** Maps a UTF-16 char to its alphabet class; 0 means "not in any pattern". */
+    private final char[] classOf;
+    private final int alphabetSize;
+    /** Full DFA: {@code next[state * alphabetSize + class]}. */
+    private final int[] next;
+    /** Whether a pattern ends in this state or in one of its suffix states. */
+    private final boolean[] accepting;
+    private final int patternCount;
+
+    private ProfanityMatcher(char[] classOf, int alphabetSize, int[] next, boolean[] accepting, int patternCount) {
+        this.classOf = classOf;
+        this.alphabetSize = alphabetSize;
+        this.next = next;
+        this.accepting = accepting;
+        this.patternCount = patternCount;
+    }
+
+    public static ProfanityMatcher build(Collection<String> patterns) {
+        char[] classOf = new char[Character.MAX_VALUE + 1];
+        int alphabetSize = 1;
+        int maxStates = 1;
+        for (String pattern : patterns) {
+            maxStates += pattern.length();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (classOf[c] == 0) classOf[c] = (char) alphabetSize++;
+            }
+        }
+
+        // trie; -1 marks a missing edge until failure links fill it in
+        int[] next = new int[maxStates * alphabetSize];
+        Arrays.fill(next, -1);
+        boolean[] accepting = new boolean[maxStates];
+        int states = 1;
+        int patternCount = 0;
+        for (String pattern : patterns) {
+            patternCount++;
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                int edge = state * alphabetSize + classOf[pattern.charAt(i)];
+                if (next[edge] < 0) next[edge] = states++;
+                state = next[edge];
+            }
+            accepting[state] = true;
+        }
+
+        // breadth-first: resolve missing edges through failure links, inherit accepting states
+        int[] fail = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < alphabetSize; cls++) {
+            int child = next[cls];
+            if (child < 0) {
+                next[cls] = ROOT;
+            } else {
+                fail[child] = ROOT;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            accepting[state] |= accepting[fail[state]];
+            for (int cls = 0; cls < alphabetSize; cls++) {
+                int edge = state * alphabetSize + cls;
+                int child = next[edge];
+                int viaFail = next[fail[state] * alphabetSize + cls];
+                if (child < 0) {
+                    next[edge] = viaFail;
+                } else {
+                    fail[child] = viaFail;
+                    queue.add(child);
+                }
+            }
+        }
+
+        return new ProfanityMatcher(classOf, alphabetSize,
+                Arrays.copyOf(next, states * alphabetSize), Arrays.copyOf(accepting, states), patternCount);
+    }
+
+    /** Matches every text, like the empty pattern does; used when no list could be loaded. */
+    public static ProfanityMatcher matchingEverything() {
+        return build(List.of(""));
+    }
+
+    public boolean containsAny(String normalizedText) {
+        int state = ROOT;
+        if (accepting[state]) return true;
+        for (int i = 0; i < normalizedText.length(); i++) {
+            state = next[state * alphabetSize + classOf[normalizedText.charAt(i)]];
+            if (accepting[state]) return true;
+        }
+        return false;
+    }
+
+    public int patternCount() {
+        return patternCount;
+    }
+}
@@ -1,34 +1,53 @@
 package ch.guessthat.util;
 
 import java.util.Arrays;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.List;
 
 import static ch.guessthat.util.ConfigLoader.loadConfig;
 import static ch.guessthat.records.RecordManager.*;
 
 public class SafetyFilters {
-    private static final Pattern PROFANITY = Pattern.compile(getProfanityList(), Pattern.CASE_INSENSITIVE);
+    private static volatile ProfanityMatcher profanity = loadDefaultProfanityList();
 
 
-    private static String getProfanityList() {
+    private static ProfanityMatcher loadDefaultProfanityList() {
         try {
-            String content = loadConfig("", "filter_profanity_list.txt");
-            return "(" + Arrays.stream(content.split("\\R"))
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .collect(Collectors.joining("|"))
-                    + ")";
+            return compile(loadConfig("", "filter_profanity_list.txt"));
         } catch (Exception e) {
             // Removed profanity...
-            return "";
+            return ProfanityMatcher.matchingEverything();
         }
     }
 
+    private static ProfanityMatcher compile(String content) {
+        List<String> patterns = Arrays.stream(content.split("\\R"))
+                .map(TextNorm::normLower)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .toList();
+        return ProfanityMatcher.build(patterns);
+    }
+
+    /**
+     * Swaps in a new profanity list (one entry per line) without a restart.
+     *
+     * @return number of patterns now active
+     */
+    public static int reloadProfanityList(String content) {
+        ProfanityMatcher reloaded = compile(content);
+        profanity = reloaded;
+        return reloaded.patternCount();
+    }
+
+    public static int profanityPatternCount() {
+        return profanity.patternCount();
+    }
+
     public static boolean isFamilyFriendly(CardDto card) {
-        if (PROFANITY.matcher(card.target()).find()) return false;
+        ProfanityMatcher matcher = profanity;
+        if (matcher.containsAny(TextNorm.normLower(card.target()))) return false;
         for (String forbiddenWord : card.forbidden()) {
-            if (PROFANITY.matcher(forbiddenWord).find()) {
+            if (matcher.containsAny(TextNorm.normLower(forbiddenWord))) {
                 return false;
             }
         }
@@ -2,12 +2,75 @@ package ch.guessthat.util;
 
 import java.text.Normalizer;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 public class TextNorm {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static volatile int memoCapacity;
+    private static final Map<String, String> MEMO = new ConcurrentHashMap<>();
+
+    /**
+     * NFKC, strip combining marks, lower-case (ROOT) and trim.
+     * Text made only of ASCII and Latin-1 letters is unchanged by NFKC and has no marks, so it
+     * skips the normalizer and is returned as-is when it is already lower-case and trimmed.
+     */
     public static String normLower(String text) {
         if (text == null) return "";
+        String fast = latin1(text);
+        if (fast != null) return fast;
+
+        if (memoCapacity == 0) return normalize(text);
+        String cached = MEMO.get(text);
+        if (cached != null) return cached;
+        String normalized = normalize(text);
+        if (MEMO.size() >= memoCapacity) MEMO.clear();
+        MEMO.put(text, normalized);
+        return normalized;
+    }
+
+    /**
+     * Enables a bounded memo for texts that need the full normalizer; 0 disables it.
+     * The memo is simply dropped when it reaches its capacity.
+     */
+    public static void setMemoCapacity(int capacity) {
+        memoCapacity = Math.max(0, capacity);
+        MEMO.clear();
+    }
+
+    private static String normalize(String text) {
         var normalizedText = Normalizer.normalize(text, Normalizer.Form.NFKC);
-        var noMarks = normalizedText.replaceAll("\\p{M}+", "");
+        var noMarks = MARKS.matcher(normalizedText).replaceAll("");
         return noMarks.toLowerCase(Locale.ROOT).trim();
     }
+
+    /** Result for text that NFKC leaves alone (no U+00A0..U+00BF, nothing above U+00FF), else null. */
+    private static String latin1(String text) {
+        int length = text.length();
+        boolean upper = false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c > 0xFF || (c >= 0xA0 && c < 0xC0)) return null;
+            if (isLatin1Upper(c)) upper = true;
+        }
+
+        int start = 0;
+        int end = length;
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+        if (!upper) return start == 0 && end == length ? text : text.substring(start, end);
+
+        char[] out = new char[end - start];
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            out[i - start] = isLatin1Upper(c) ? (char) (c + 0x20) : c;
+        }
+        return new String(out);
+    }
+
+    private static boolean isLatin1Upper(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 0xC0 && c <= 0xDE && c != 0xD7);
+    }
 }
@@ -0,0 +1,45 @@
+package ch.guessthat.util;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Time-ordered UUIDv7 ids and their {@code BINARY(16)} column form. The first 48 bits are the
+ * Unix time in milliseconds, so new card ids land at the right edge of the clustered index
+ * instead of splitting random pages.
+ */
+public class Uuids {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public static UUID v7() {
+        return v7(System.currentTimeMillis());
+    }
+
+    static UUID v7(long epochMillis) {
+        byte[] random = new byte[10];
+        RANDOM.nextBytes(random);
+        long msb = (epochMillis << 16)
+                | 0x7000L
+                | ((random[0] & 0x0FL) << 8) | (random[1] & 0xFFL);
+        long lsb = 0x8000_0000_0000_0000L | (ByteBuffer.wrap(random, 2, 8).getLong() & 0x3FFF_FFFF_FFFF_FFFFL);
+        return new UUID(msb, lsb);
+    }
+
+    /** Big-endian bytes, the same layout as MySQL's {@code UUID_TO_BIN(id)} without swap. */
+    public static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    public static byte[] toBytes(String id) {
+        return toBytes(UUID.fromString(id));
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
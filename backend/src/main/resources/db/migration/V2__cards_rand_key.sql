@@ -0,0 +1,7 @@
+-- Stored random sort key per card so /draw?mode=random can sample with index seeks
+-- instead of ORDER BY RAND() over the whole deck.
+ALTER TABLE cards ADD COLUMN rand_key DOUBLE NOT NULL DEFAULT 0;
+
+UPDATE cards SET rand_key = RAND();
+
+CREATE INDEX idx_cards_deck_rand ON cards (language, category, difficulty, rand_key);
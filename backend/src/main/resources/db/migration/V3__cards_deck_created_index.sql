@@ -0,0 +1,2 @@
+-- Composite index backing keyset pagination of /draw: newest first, ties broken by id.
+CREATE INDEX idx_cards_deck_created ON cards (language, category, difficulty, created_at, id);
@@ -0,0 +1,16 @@
+-- One row per deck, bumped in the same transaction as every card insert. /draw derives its
+-- ETag / Last-Modified from it so unchanged decks are answered with 304 without reading cards.
+CREATE TABLE IF NOT EXISTS deck_versions (
+    language    VARCHAR(16)  NOT NULL,
+    category    VARCHAR(32)  NOT NULL,
+    difficulty  VARCHAR(16)  NOT NULL,
+    version     BIGINT       NOT NULL,
+    card_count  BIGINT       NOT NULL,
+    updated_at  TIMESTAMP(3) NOT NULL,
+    PRIMARY KEY (language, category, difficulty)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO deck_versions (language, category, difficulty, version, card_count, updated_at)
+SELECT language, category, difficulty, 1, COUNT(*), MAX(created_at)
+FROM cards
+GROUP BY language, category, difficulty;
@@ -0,0 +1,20 @@
+-- Dense 0-based position of a card within its deck, in insert order. Draw sessions keep the cards a
+-- game has seen as a bitmap over these ordinals. New cards are numbered from deck_versions.card_count.
+ALTER TABLE cards ADD COLUMN deck_ordinal INT NULL;
+
+UPDATE cards c
+JOIN (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY language, category, difficulty ORDER BY created_at, id) - 1 AS ord
+    FROM cards
+) o ON o.id = c.id
+SET c.deck_ordinal = o.ord;
+
+UPDATE deck_versions v
+JOIN (
+    SELECT language, category, difficulty, COUNT(*) AS cards
+    FROM cards
+    GROUP BY language, category, difficulty
+) d ON d.language = v.language AND d.category = v.category AND d.difficulty = v.difficulty
+SET v.card_count = d.cards;
+
+CREATE UNIQUE INDEX uq_cards_deck_ordinal ON cards (language, category, difficulty, deck_ordinal);
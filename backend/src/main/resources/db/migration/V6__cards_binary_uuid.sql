@@ -0,0 +1,20 @@
+-- Card ids move from CHAR(36) utf8mb4 (up to 144 bytes per key) to BINARY(16). New ids are
+-- time-ordered UUIDv7, so inserts append to the clustered index instead of splitting random pages.
+-- Existing ids keep their value; UUID_TO_BIN without swap matches Uuids.toBytes.
+ALTER TABLE card_forbidden DROP FOREIGN KEY fk_card_forbidden;
+
+ALTER TABLE card_forbidden ADD COLUMN card_id_bin BINARY(16) NULL;
+UPDATE card_forbidden SET card_id_bin = UUID_TO_BIN(card_id);
+ALTER TABLE card_forbidden DROP INDEX idx_card_forbidden_card_id, DROP COLUMN card_id;
+ALTER TABLE card_forbidden CHANGE COLUMN card_id_bin card_id BINARY(16) NOT NULL FIRST,
+    ADD INDEX idx_card_forbidden_card_id (card_id);
+
+ALTER TABLE cards ADD COLUMN id_bin BINARY(16) NULL;
+UPDATE cards SET id_bin = UUID_TO_BIN(id);
+ALTER TABLE cards DROP INDEX idx_cards_deck_created, DROP PRIMARY KEY, DROP COLUMN id;
+ALTER TABLE cards CHANGE COLUMN id_bin id BINARY(16) NOT NULL FIRST,
+    ADD PRIMARY KEY (id),
+    ADD INDEX idx_cards_deck_created (language, category, difficulty, created_at, id);
+
+ALTER TABLE card_forbidden
+    ADD CONSTRAINT fk_card_forbidden FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE;
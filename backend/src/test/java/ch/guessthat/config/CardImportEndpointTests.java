@@ -0,0 +1,38 @@
+package ch.guessthat.config;
+
+import ch.guessthat.services.CardBulkService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class CardImportEndpointTests {
+
+	@TempDir
+	Path importDir;
+
+	@Test
+	void resolvesBareFileNamesInsideTheImportDirectory() {
+		assertThat(endpoint().resolve("cards.ndjson.gz")).isEqualTo(importDir.resolve("cards.ndjson.gz").toAbsolutePath().normalize());
+	}
+
+	@Test
+	void rejectsPathsThatLeaveTheImportDirectory() {
+		CardImportEndpoint endpoint = endpoint();
+		for (String file : new String[]{"/etc/passwd", "../secret.json", "sub/cards.json", "..", ".", ""}) {
+			assertThatThrownBy(() -> endpoint.resolve(file)).as(file).isInstanceOf(InvalidEndpointRequestException.class);
+		}
+	}
+
+	private CardImportEndpoint endpoint() {
+		CardImportEndpoint endpoint = new CardImportEndpoint(mock(CardBulkService.class));
+		ReflectionTestUtils.setField(endpoint, "importDir", importDir);
+		return endpoint;
+	}
+}
@@ -0,0 +1,131 @@
+package ch.guessthat.config;
+
+import ch.guessthat.repository.ReplicaDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link ReadWriteDataSourceConfig} under the application's JPA transaction manager, with a primary
+ * and a replica H2 database that each know their own name: Hibernate prepares the connection of a
+ * read-only transaction, which must still reach the replica through the lazy proxy.
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:jpa-primary;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"app.config.datasource.replicas=jdbc:h2:mem:jpa-replica;DB_CLOSE_DELAY=-1",
+		"spring.flyway.enabled=false",
+		"spring.sql.init.mode=never",
+		"spring.jpa.hibernate.ddl-auto=none",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReadWriteDataSourceConfig.class, ReadWriteDataSourceConfigTests.Nodes.class})
+class ReadWriteDataSourceConfigTests {
+
+	@TestConfiguration
+	static class Metrics {
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	Nodes nodes;
+
+	@BeforeAll
+	static void createDatabases() {
+		for (String name : new String[]{"jpa-primary", "jpa-replica"}) {
+			JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", ""));
+			jdbc.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(32))");
+			jdbc.execute("DELETE FROM node");
+			jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+		}
+	}
+
+	@AfterEach
+	void clearPin() {
+		ReplicaDataSource.clearPin();
+	}
+
+	@Test
+	void runsUnderTheJpaTransactionManager() {
+		assertThat(transactionManager).isInstanceOf(JpaTransactionManager.class);
+	}
+
+	@Test
+	void readOnlyTransactionsGoToTheReplica() {
+		assertThat(nodes.readJdbc()).isEqualTo("jpa-replica");
+		assertThat(nodes.readJpa()).isEqualTo("jpa-replica");
+	}
+
+	@Test
+	void readWriteTransactionsGoToThePrimary() {
+		assertThat(nodes.writeJdbc()).isEqualTo("jpa-primary");
+		assertThat(nodes.writeJpa()).isEqualTo("jpa-primary");
+	}
+
+	@Test
+	void pinnedReadsGoToThePrimary() {
+		assertThat(ReplicaDataSource.onPrimary(nodes::readJpa)).isEqualTo("jpa-primary");
+		assertThat(nodes.readJpa()).isEqualTo("jpa-replica");
+	}
+
+	/** Asks the database that served the transaction for its name, over JDBC and over JPA. */
+	static class Nodes {
+		private final JdbcTemplate jdbc;
+
+		@PersistenceContext
+		EntityManager entityManager;
+
+		Nodes(DataSource dataSource) {
+			this.jdbc = new JdbcTemplate(dataSource);
+		}
+
+		@Transactional(readOnly = true)
+		public String readJdbc() {
+			return jdbc.queryForObject("SELECT name FROM node", String.class);
+		}
+
+		@Transactional(readOnly = true)
+		public String readJpa() {
+			return (String) entityManager.createNativeQuery("SELECT name FROM node").getSingleResult();
+		}
+
+		@Transactional
+		public String writeJdbc() {
+			return jdbc.queryForObject("SELECT name FROM node", String.class);
+		}
+
+		@Transactional
+		public String writeJpa() {
+			return (String) entityManager.createNativeQuery("SELECT name FROM node").getSingleResult();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package ch.guessthat.config;
+
+import ch.guessthat.repository.ReplicaDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ReadYourWritesInterceptorTests {
+
+	private final DataSource primary = mock(DataSource.class);
+	private final DataSource replica = mock(DataSource.class);
+	private final ReplicaDataSource routing = new ReplicaDataSource(primary, List.of(replica), Duration.ofMinutes(1), Duration.ZERO, new SimpleMeterRegistry());
+	private final ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(10);
+
+	@AfterEach
+	void clearPin() {
+		ReplicaDataSource.clearPin();
+	}
+
+	@Test
+	void readsAfterADownloadGoToThePrimaryForTheSameClient() throws Exception {
+		complete(request("/api/cards/download", "alice", "10.0.0.1"), 200);
+
+		handle(request("/api/cards/draw", "alice", "10.0.0.1"));
+		verify(primary).getConnection();
+		verifyNoInteractions(replica);
+	}
+
+	@Test
+	void otherClientsKeepReadingFromTheReplica() throws Exception {
+		complete(request("/api/cards/download", "alice", "10.0.0.1"), 200);
+
+		handle(request("/api/cards/draw", "bob", "10.0.0.1"));
+		verify(replica).getConnection();
+		verifyNoInteractions(primary);
+	}
+
+	@Test
+	void failedDownloadsDoNotPin() throws Exception {
+		complete(request("/api/cards/download", "alice", "10.0.0.1"), 503);
+
+		handle(request("/api/cards/draw", "alice", "10.0.0.1"));
+		verify(replica).getConnection();
+		verifyNoInteractions(primary);
+	}
+
+	@Test
+	void clientsWithoutIdAreToldApartByRemoteAddress() throws Exception {
+		complete(request("/api/cards/download", null, "10.0.0.1"), 200);
+
+		handle(request("/api/cards/draw", null, "10.0.0.1"));
+		handle(request("/api/cards/draw", null, "10.0.0.2"));
+		verify(primary).getConnection();
+		verify(replica).getConnection();
+	}
+
+	@Test
+	void thePinEndsWithTheRequest() throws Exception {
+		complete(request("/api/cards/download", "alice", "10.0.0.1"), 200);
+		MockHttpServletRequest draw = request("/api/cards/draw", "alice", "10.0.0.1");
+
+		interceptor.preHandle(draw, new MockHttpServletResponse(), null);
+		complete(draw, 200);
+
+		routing.getConnection();
+		verify(replica).getConnection();
+		verifyNoInteractions(primary);
+	}
+
+	@Test
+	void thePinFollowsAStreamedResponseOntoItsAsyncThread() throws Exception {
+		complete(request("/api/cards/download", "alice", "10.0.0.1"), 200);
+		MockHttpServletRequest export = request("/api/cards/export", "alice", "10.0.0.1");
+		ServletWebRequest webRequest = new ServletWebRequest(export);
+		var propagation = new ReadYourWritesInterceptor.PinPropagation();
+
+		interceptor.preHandle(export, new MockHttpServletResponse(), null);
+		propagation.beforeConcurrentHandling(webRequest, null);
+		interceptor.afterConcurrentHandlingStarted(export, new MockHttpServletResponse(), null);
+
+		try (ExecutorService async = Executors.newSingleThreadExecutor()) {
+			boolean pinnedAfterwards = async.submit(() -> {
+				propagation.preProcess(webRequest, null);
+				routing.getConnection();
+				propagation.postProcess(webRequest, null, null);
+				return ReplicaDataSource.pinnedToPrimary();
+			}).get();
+			assertThat(pinnedAfterwards).isFalse();
+		}
+		verify(primary).getConnection();
+		verifyNoInteractions(replica);
+	}
+
+	/** Runs a request through the interceptor and reads once while it is in flight. */
+	private void handle(MockHttpServletRequest request) throws SQLException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		interceptor.preHandle(request, response, null);
+		routing.getConnection();
+		interceptor.afterCompletion(request, response, null, null);
+	}
+
+	private void complete(MockHttpServletRequest request, int status) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setStatus(status);
+		interceptor.afterCompletion(request, response, null, null);
+	}
+
+	private static MockHttpServletRequest request(String uri, String clientId, String remoteAddress) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+		if (clientId != null) request.addHeader(ReadYourWritesInterceptor.CLIENT_HEADER, clientId);
+		request.setRemoteAddr(remoteAddress);
+		return request;
+	}
+}
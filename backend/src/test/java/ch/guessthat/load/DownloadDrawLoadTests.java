@@ -0,0 +1,224 @@
+package ch.guessthat.load;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives {@code /download} (against {@link FakeOpenAiServer}) and {@code /draw} concurrently and
+ * logs throughput, p50/p99 latency per endpoint, the server-side stage timers and any carrier
+ * pinning seen by JFR. {@link PlatformThreadsLoadTests} and {@link VirtualThreadsLoadTests} run it
+ * with {@code spring.threads.virtual.enabled} off and on. Excluded from the normal build; run with
+ * {@code mvn -Pload-test test}.
+ * <p>
+ * Knobs (system properties): {@code load.db} ({@code h2}, default, or {@code mysql} for the
+ * datasource in application.properties), {@code load.clients}, {@code load.seconds},
+ * {@code load.download-share}, {@code load.count}, and the fake's {@code load.openai.*} settings.
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(resolver = DownloadDrawLoadTests.Profiles.class)
+abstract class DownloadDrawLoadTests {
+	private static final String DECK = "lang=de-CH&category=family&difficulty=medium";
+
+	/** Shared by both thread modes; stopped with the JVM. */
+	static final FakeOpenAiServer openAi = FakeOpenAiServer.start(FakeOpenAiServer.Settings.fromSystemProperties());
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(openAi::close));
+	}
+
+	/** {@code loadtest-h2} or {@code loadtest-mysql}, picked by {@code -Dload.db}. */
+	static class Profiles implements ActiveProfilesResolver {
+		@Override
+		public String[] resolve(Class<?> testClass) {
+			return new String[]{"loadtest-" + System.getProperty("load.db", "h2")};
+		}
+	}
+
+	@DynamicPropertySource
+	static void openAiProperties(DynamicPropertyRegistry registry) {
+		registry.add("openai.baseUrl", openAi::baseUrl);
+		registry.add("openai.apiKey", () -> "load-test");
+	}
+
+	@LocalServerPort
+	int port;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	@Value("${spring.threads.virtual.enabled:false}")
+	boolean virtualThreads;
+
+	@Test
+	void downloadAndDrawConcurrently() throws Exception {
+		int clients = Integer.getInteger("load.clients", 256);
+		Duration duration = Duration.ofSeconds(Long.getLong("load.seconds", 30));
+		double downloadShare = Double.parseDouble(System.getProperty("load.download-share", "0.1"));
+		int count = Integer.getInteger("load.count", 50);
+
+		HttpClient http = HttpClient.newBuilder()
+				.executor(Executors.newVirtualThreadPerTaskExecutor())
+				.connectTimeout(Duration.ofSeconds(5))
+				.build();
+		String base = "http://localhost:" + port + "/api/cards";
+
+		// one download up front so /draw has a deck to read from the first request on
+		assertThat(send(http, URI.create(base + "/download?" + DECK + "&count=" + count)).statusCode()).isEqualTo(200);
+
+		Map<String, Integer> pinned = new ConcurrentHashMap<>();
+		RecordingStream jfr = new RecordingStream();
+		jfr.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+		jfr.onEvent("jdk.VirtualThreadPinned", event -> pinned.merge(pinnedAt(event), 1, Integer::sum));
+		jfr.startAsync();
+
+		Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+		long openAiCallsBefore = openAi.requests();
+		long deadline = System.nanoTime() + duration.toNanos();
+		long started = System.nanoTime();
+		try (jfr) {
+			try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int c = 0; c < clients; c++) {
+					workers.submit(() -> {
+						while (System.nanoTime() < deadline) {
+							var random = ThreadLocalRandom.current();
+							boolean download = random.nextDouble() < downloadShare;
+							String mode = random.nextBoolean() ? "random" : "latest";
+							String endpoint = download ? "download" : "draw-" + mode;
+							URI uri = URI.create(base + (download ? "/download?" : "/draw?mode=" + mode + "&")
+									+ DECK + "&count=" + count);
+							long start = System.nanoTime();
+							int status;
+							try {
+								status = send(http, uri).statusCode();
+							} catch (Exception e) {
+								status = -1;
+							}
+							latencies.computeIfAbsent(endpoint, k -> new Latencies())
+									.record(status, System.nanoTime() - start);
+						}
+						return null;
+					});
+				}
+			}
+			jfr.stop();
+		}
+		double seconds = (System.nanoTime() - started) / 1e9;
+
+		report(clients, seconds, openAi.requests() - openAiCallsBefore, latencies, pinned);
+		for (String draw : List.of("draw-random", "draw-latest")) {
+			assertThat(latencies.get(draw).ok()).as(draw).isPositive();
+			assertThat(latencies.get(draw).statuses()).as(draw).containsOnlyKeys(200);
+		}
+		assertThat(pinned).isEmpty();
+	}
+
+	/** The innermost application-level frame of a pinned virtual thread. */
+	private static String pinnedAt(RecordedEvent event) {
+		if (event.getStackTrace() == null) return "(no stack)";
+		return event.getStackTrace().getFrames().stream()
+				.map(RecordedFrame::getMethod)
+				.map(m -> m.getType().getName() + "." + m.getName())
+				.filter(frame -> !frame.startsWith("java.") && !frame.startsWith("jdk."))
+				.findFirst()
+				.orElse("(jdk internal)");
+	}
+
+	private static HttpResponse<byte[]> send(HttpClient http, URI uri) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofMinutes(3)).GET().build();
+		return http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	private void report(int clients, double seconds, long openAiCalls, Map<String, Latencies> latencies,
+						Map<String, Integer> pinned) {
+		StringBuilder out = new StringBuilder("\n=== load (%s threads): %d clients, %.1fs, fake openai calls=%d ===\n"
+				.formatted(virtualThreads ? "virtual" : "platform", clients, seconds, openAiCalls));
+		latencies.forEach((endpoint, l) -> out.append("%-12s %s\n".formatted(endpoint, l.summary(seconds))));
+
+		out.append("--- stages ---\n");
+		for (String name : List.of("openai.request", "openai.bulkhead.wait", "cards.db.query", "http.server.requests")) {
+			for (Timer timer : meterRegistry.find(name).timers()) {
+				out.append("%-22s %-60s n=%-7d mean=%7.1fms max=%7.1fms\n".formatted(name, tags(timer),
+						timer.count(), timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS)));
+			}
+		}
+		for (String name : List.of("cards.filter.accepted", "cards.filter.rejected", "cards.stored", "cards.generation.coalesced")) {
+			for (Counter counter : meterRegistry.find(name).counters()) {
+				out.append("%-22s %-60s %.0f\n".formatted(name, tags(counter), counter.count()));
+			}
+		}
+		out.append("--- pinned virtual threads: %s ---\n".formatted(pinned.isEmpty() ? "none" : ""));
+		pinned.forEach((frame, n) -> out.append("%6d  %s\n".formatted(n, frame)));
+		log.info("{}", out);
+	}
+
+	private static String tags(io.micrometer.core.instrument.Meter meter) {
+		StringJoiner joiner = new StringJoiner(",");
+		meter.getId().getTags().forEach(tag -> joiner.add(tag.getKey() + "=" + tag.getValue()));
+		return joiner.toString();
+	}
+
+	/** Per-endpoint latencies in nanoseconds and response status counts. */
+	private static final class Latencies {
+		private final List<Long> nanos = new ArrayList<>();
+		private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+		synchronized void record(int status, long elapsed) {
+			nanos.add(elapsed);
+			statuses.merge(status, 1, Integer::sum);
+		}
+
+		synchronized int ok() {
+			return statuses.getOrDefault(200, 0);
+		}
+
+		synchronized Map<Integer, Integer> statuses() {
+			return new TreeMap<>(statuses);
+		}
+
+		synchronized String summary(double seconds) {
+			List<Long> sorted = new ArrayList<>(nanos);
+			Collections.sort(sorted);
+			return "n=%-7d %7.1f req/s  p50=%7.1fms  p99=%7.1fms  max=%7.1fms  statuses=%s".formatted(
+					sorted.size(), sorted.size() / seconds,
+					percentile(sorted, 0.50), percentile(sorted, 0.99),
+					sorted.isEmpty() ? 0.0 : sorted.getLast() / 1e6, statuses);
+		}
+
+		private static double percentile(List<Long> sorted, double p) {
+			if (sorted.isEmpty()) return 0.0;
+			int index = (int) Math.ceil(p * sorted.size()) - 1;
+			return sorted.get(Math.max(0, index)) / 1e6;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package ch.guessthat.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the OpenAI Responses API ({@code POST /v1/responses}, plain and streamed) that
+ * answers the card prompt with synthetic card batches, so {@code /download} can be load-tested
+ * without paying for tokens. Point {@code openai.baseUrl} at {@link #baseUrl()}.
+ * <p>
+ * Deck, language and card count are read from the prompt. Latency, batch size, the share of
+ * targets repeated from earlier batches and the share of cards carrying a profane word are set
+ * with {@link Settings}.
+ */
+@Slf4j
+public class FakeOpenAiServer implements AutoCloseable {
+	private static final Pattern COUNT = Pattern.compile("Create (\\d+) high-quality cards");
+	private static final Pattern LANGUAGE = Pattern.compile("language: must be exactly \"([^\"]+)\"");
+	private static final Pattern CATEGORY = Pattern.compile("category: must be exactly \"([^\"]+)\"");
+	private static final Pattern DIFFICULTY = Pattern.compile("difficulty: must be exactly \"([^\"]+)\"");
+	private static final List<String> FORBIDDEN = List.of("Farbe", "Tisch", "Fenster", "Sonne", "Garten", "Musik", "Reise");
+	private static final String PROFANE = "Arschloch";
+	private static final int STREAM_CHUNKS = 20;
+
+	/**
+	 * @param latencyMs      time to the complete response; streamed responses spread it over their chunks
+	 * @param batchSize      cards per response, or 0 to return as many as the prompt asks for
+	 * @param duplicateRatio share of cards whose target repeats one handed out before
+	 * @param profanityRate  share of cards with a profane forbidden word
+	 */
+	public record Settings(long latencyMs, int batchSize, double duplicateRatio, double profanityRate) {
+
+		/** Reads {@code load.openai.latency-ms}, {@code .batch-size}, {@code .duplicate-ratio} and {@code .profanity-rate}. */
+		public static Settings fromSystemProperties() {
+			return new Settings(
+					Long.getLong("load.openai.latency-ms", 2000),
+					Integer.getInteger("load.openai.batch-size", 0),
+					Double.parseDouble(System.getProperty("load.openai.duplicate-ratio", "0.1")),
+					Double.parseDouble(System.getProperty("load.openai.profanity-rate", "0.05")));
+		}
+	}
+
+	private final Settings settings;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpServer server;
+	private final AtomicLong targets = new AtomicLong();
+	private final AtomicLong requests = new AtomicLong();
+
+	private FakeOpenAiServer(Settings settings) throws IOException {
+		this.settings = settings;
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		this.server.createContext("/v1/responses", this::handle);
+	}
+
+	public static FakeOpenAiServer start(Settings settings) {
+		try {
+			FakeOpenAiServer fake = new FakeOpenAiServer(settings);
+			fake.server.start();
+			log.info("FAKE openai listening on {} settings={}", fake.baseUrl(), settings);
+			return fake;
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not start fake OpenAI server", e);
+		}
+	}
+
+	public String baseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+	}
+
+	public long requests() {
+		return requests.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			requests.incrementAndGet();
+			JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+			String prompt = request.path("input").asText();
+			int count = settings.batchSize() > 0 ? settings.batchSize() : intMatch(COUNT, prompt, 50);
+			String text = objectMapper.writeValueAsString(batch(prompt, count));
+			String model = request.path("model").asText("fake");
+
+			if (request.path("stream").asBoolean(false)) {
+				stream(exchange, text, model);
+			} else {
+				sleep(settings.latencyMs());
+				byte[] body = objectMapper.writeValueAsBytes(response(text, model));
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, body.length);
+				exchange.getResponseBody().write(body);
+			}
+		}
+	}
+
+	private void stream(HttpExchange exchange, String text, String model) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream out = exchange.getResponseBody();
+		int step = Math.max(1, (text.length() + STREAM_CHUNKS - 1) / STREAM_CHUNKS);
+		int sequence = 0;
+		for (int from = 0; from < text.length(); from += step) {
+			sleep(settings.latencyMs() / STREAM_CHUNKS);
+			ObjectNode delta = objectMapper.createObjectNode()
+					.put("type", "response.output_text.delta")
+					.put("item_id", "msg_fake")
+					.put("output_index", 0)
+					.put("content_index", 0)
+					.put("delta", text.substring(from, Math.min(text.length(), from + step)))
+					.put("sequence_number", sequence++);
+			delta.putArray("logprobs");
+			event(out, "response.output_text.delta", delta);
+		}
+		ObjectNode completed = objectMapper.createObjectNode()
+				.put("type", "response.completed")
+				.put("sequence_number", sequence);
+		completed.set("response", response(text, model));
+		event(out, "response.completed", completed);
+	}
+
+	private void event(OutputStream out, String type, JsonNode data) throws IOException {
+		out.write(("event: " + type + "\ndata: " + objectMapper.writeValueAsString(data) + "\n\n")
+				.getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	private ObjectNode batch(String prompt, int count) {
+		String language = match(LANGUAGE, prompt, "de-CH");
+		String category = match(CATEGORY, prompt, "family");
+		String difficulty = match(DIFFICULTY, prompt, "medium");
+		var random = ThreadLocalRandom.current();
+
+		ObjectNode batch = objectMapper.createObjectNode();
+		ArrayNode cards = batch.putArray("cards");
+		for (int i = 0; i < count; i++) {
+			long issued = targets.get();
+			long n = issued > 0 && random.nextDouble() < settings.duplicateRatio()
+					? random.nextLong(issued)
+					: targets.getAndIncrement();
+			ObjectNode card = cards.addObject()
+					.put("id", "")
+					.put("language", language)
+					.put("category", category)
+					.put("difficulty", difficulty)
+					.put("target", "Objekt" + n);
+			ArrayNode forbidden = card.putArray("forbidden");
+			FORBIDDEN.subList(0, 5 + random.nextInt(3)).forEach(forbidden::add);
+			if (random.nextDouble() < settings.profanityRate()) forbidden.set(0, PROFANE);
+		}
+		return batch;
+	}
+
+	/** A completed Responses API response whose single message carries {@code text}. */
+	private ObjectNode response(String text, String model) {
+		ObjectNode response = objectMapper.createObjectNode()
+				.put("id", "resp_fake_" + requests.get())
+				.put("object", "response")
+				.put("created_at", Instant.now().getEpochSecond())
+				.put("status", "completed")
+				.putNull("error")
+				.putNull("incomplete_details")
+				.putNull("instructions")
+				.put("model", model)
+				.put("parallel_tool_calls", true)
+				.put("temperature", 1.0)
+				.put("tool_choice", "auto")
+				.put("top_p", 1.0);
+		response.putObject("metadata");
+		response.putArray("tools");
+
+		ObjectNode message = response.putArray("output").addObject()
+				.put("type", "message")
+				.put("id", "msg_fake")
+				.put("status", "completed")
+				.put("role", "assistant");
+		ObjectNode content = message.putArray("content").addObject()
+				.put("type", "output_text")
+				.put("text", text);
+		content.putArray("annotations");
+		content.putArray("logprobs");
+
+		int outputTokens = text.length() / 4;
+		ObjectNode usage = response.putObject("usage")
+				.put("input_tokens", 1500)
+				.put("output_tokens", outputTokens)
+				.put("total_tokens", 1500 + outputTokens);
+		usage.putObject("input_tokens_details").put("cached_tokens", 0);
+		usage.putObject("output_tokens_details").put("reasoning_tokens", 0);
+		return response;
+	}
+
+	private static String match(Pattern pattern, String prompt, String fallback) {
+		Matcher matcher = pattern.matcher(prompt);
+		return matcher.find() ? matcher.group(1) : fallback;
+	}
+
+	private static int intMatch(Pattern pattern, String prompt, int fallback) {
+		return Integer.parseInt(match(pattern, prompt, Integer.toString(fallback)));
+	}
+
+	private static void sleep(long millis) {
+		if (millis <= 0) return;
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
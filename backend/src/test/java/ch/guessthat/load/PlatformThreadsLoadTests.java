@@ -0,0 +1,8 @@
+package ch.guessthat.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+/** {@link DownloadDrawLoadTests} on Tomcat's platform-thread worker pool. */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadsLoadTests extends DownloadDrawLoadTests {
+}
@@ -0,0 +1,8 @@
+package ch.guessthat.load;
+
+import org.springframework.test.context.TestPropertySource;
+
+/** {@link DownloadDrawLoadTests} with Tomcat, scheduling and async MVC on virtual threads. */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadsLoadTests extends DownloadDrawLoadTests {
+}
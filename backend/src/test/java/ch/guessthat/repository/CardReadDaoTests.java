@@ -0,0 +1,96 @@
+package ch.guessthat.repository;
+
+import ch.guessthat.model.CardEntity;
+import ch.guessthat.util.TextNorm;
+import ch.guessthat.util.Uuids;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static ch.guessthat.records.RecordManager.CardDto;
+import static ch.guessthat.records.RecordManager.DeckKey;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardReadDaoTests {
+	private static final String LANG = "de-CH";
+	private static final String CAT = "family";
+	private static final String DIFF = "medium";
+	private static final Map<String, Double> randKeys = new HashMap<>();
+
+	private static CardReadDao reader;
+
+	@BeforeAll
+	static void fillDeck() {
+		var dataSource = new DriverManagerDataSource("jdbc:h2:mem:read-dao;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+		new ResourceDatabasePopulator(new ClassPathResource("db/h2/schema.sql")).execute(dataSource);
+		var jdbc = new NamedParameterJdbcTemplate(dataSource);
+		var random = new SplittableRandom(3);
+		List<CardEntity> deck = IntStream.range(0, 200)
+				.mapToObj(i -> CardEntity.builder()
+						.id(Uuids.v7())
+						.language(LANG).category(CAT).difficulty(DIFF)
+						.target("Ziel" + i)
+						.normTarget(TextNorm.normLower("Ziel" + i))
+						.randKey(random.nextDouble())
+						.forbidden(List.of("Farbe", "Tisch"))
+						.build())
+				.toList();
+		deck.forEach(card -> randKeys.put(card.getTarget(), card.getRandKey()));
+		new CardWriteDao(jdbc).insertCardsIfNew(deck);
+		reader = new CardReadDao(jdbc, new SimpleMeterRegistry());
+	}
+
+	@Test
+	void randomDrawsAreDistinctCardsOfTheDeck() {
+		List<CardDto> drawn = reader.drawRandom(LANG, CAT, DIFF, 20);
+
+		assertThat(drawn).hasSize(20);
+		assertThat(drawn).extracting(CardDto::target).doesNotHaveDuplicates().allMatch(randKeys::containsKey);
+		assertThat(drawn).allSatisfy(card -> assertThat(card.forbidden()).containsExactlyInAnyOrder("Farbe", "Tisch"));
+	}
+
+	@Test
+	void randomDrawsAreNotReturnedInRandKeyOrder() {
+		Set<String> leaders = new HashSet<>();
+		int sorted = 0;
+		for (int i = 0; i < 20; i++) {
+			List<Double> keys = reader.drawRandom(LANG, CAT, DIFF, 10).stream()
+					.map(card -> randKeys.get(card.target()))
+					.toList();
+			if (keys.equals(keys.stream().sorted().toList())) sorted++;
+			leaders.add(reader.drawRandom(LANG, CAT, DIFF, 10).getFirst().target());
+		}
+
+		assertThat(sorted).isLessThan(2);
+		assertThat(leaders).hasSizeGreaterThan(5);
+	}
+
+	@Test
+	void deckCountsComeFromTheDeckVersions() {
+		assertThat(reader.countByDeck()).containsExactly(Map.entry(new DeckKey(LANG, CAT, DIFF), 200L));
+	}
+
+	@Test
+	void recentTargetsAreLimitedPerDeck() {
+		List<String> targets = new ArrayList<>();
+		reader.forEachRecentTarget(new DeckKey(LANG, CAT, DIFF), 30, (lang, norm, target) -> targets.add(target));
+
+		assertThat(targets).hasSize(30).doesNotHaveDuplicates().allMatch(randKeys::containsKey);
+	}
+
+	@Test
+	void ordinalDrawsKeepTheRequestedOrderAndSkipMissingOrdinals() {
+		Map<Integer, CardDto> drawn = reader.drawOrdinals(LANG, CAT, DIFF, List.of(17, 3, 5000, 199, 0));
+
+		assertThat(drawn.keySet()).containsExactly(17, 3, 199, 0);
+		assertThat(drawn.values()).extracting(CardDto::target).containsExactly("Ziel17", "Ziel3", "Ziel199", "Ziel0");
+		assertThat(drawn.values()).allSatisfy(card -> assertThat(card.forbidden()).containsExactlyInAnyOrder("Farbe", "Tisch"));
+	}
+}
@@ -0,0 +1,188 @@
+package ch.guessthat.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/** Routing between two (or three) embedded H2 databases that each know their own name. */
+class ReplicaDataSourceTests {
+
+	private static final DataSource primary = database("rw-primary");
+	private static final DataSource replicaA = database("rw-replica-a");
+	private static final DataSource replicaB = database("rw-replica-b");
+	private static final DataSource down = new DriverManagerDataSource("jdbc:h2:mem:rw-missing;IFEXISTS=TRUE", "sa", "");
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@BeforeAll
+	static void createDatabases() {
+		for (DataSource db : List.of(primary, replicaA, replicaB)) {
+			String name = ((DriverManagerDataSource) db).getUrl().replaceAll("jdbc:h2:mem:([^;]+);.*", "$1");
+			JdbcTemplate jdbc = new JdbcTemplate(db);
+			jdbc.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(32))");
+			jdbc.execute("DELETE FROM node");
+			jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+		}
+	}
+
+	@AfterEach
+	void clearPin() {
+		ReplicaDataSource.clearPin();
+	}
+
+	@Test
+	void readOnlyTransactionsGoToTheReplica() {
+		Routing routing = new Routing(List.of(replicaA));
+
+		assertThat(routing.read()).isEqualTo("rw-replica-a");
+		assertThat(routing.write()).isEqualTo("rw-primary");
+		assertThat(routing.withoutTransaction()).isEqualTo("rw-primary");
+	}
+
+	@Test
+	void readsAlternateBetweenReplicas() {
+		Routing routing = new Routing(List.of(replicaA, replicaB));
+
+		List<String> reads = List.of(routing.read(), routing.read(), routing.read(), routing.read());
+
+		assertThat(reads).containsOnly("rw-replica-a", "rw-replica-b");
+		for (int i = 1; i < reads.size(); i++) assertThat(reads.get(i)).isNotEqualTo(reads.get(i - 1));
+	}
+
+	@Test
+	void aReplicaThatIsDownIsSkippedUntilTheRetryWindowEnds() {
+		Routing routing = new Routing(List.of(down, replicaB));
+
+		assertThat(routing.read()).isEqualTo("rw-replica-b");
+		assertThat(routing.replicas.availableReplicas()).isEqualTo(1);
+		assertThat(List.of(routing.read(), routing.read())).containsOnly("rw-replica-b");
+	}
+
+	@Test
+	void readsFailOverToThePrimaryWhenNoReplicaIsAvailable() {
+		Routing routing = new Routing(List.of(down));
+
+		assertThat(routing.read()).isEqualTo("rw-primary");
+		assertThat(routing.read()).isEqualTo("rw-primary");
+		assertThat(meterRegistry.counter("db.replica.failover").count()).isEqualTo(2.0);
+	}
+
+	@Test
+	void aLaggingReplicaServesNoReadsUntilItCatchesUp() throws SQLException {
+		ReplicaDataSource replicas = new ReplicaDataSource(primary, List.of(replicaBehindBy(120L, 2L)),
+				Duration.ofMinutes(1), Duration.ofSeconds(5), meterRegistry);
+
+		replicas.checkReplicas();
+		assertThat(replicas.availableReplicas()).isZero();
+		replicas.checkReplicas();
+		assertThat(replicas.availableReplicas()).isEqualTo(1);
+	}
+
+	@Test
+	void aReplicaThatStoppedReplicatingIsTakenOut() throws SQLException {
+		ReplicaDataSource replicas = new ReplicaDataSource(primary, List.of(replicaBehindBy((Long) null)),
+				Duration.ofMinutes(1), Duration.ofSeconds(5), meterRegistry);
+
+		replicas.checkReplicas();
+		assertThat(replicas.availableReplicas()).isZero();
+	}
+
+	@Test
+	void theHealthCheckFindsAReplicaThatIsDownBeforeAnyReadDoes() {
+		ReplicaDataSource replicas = new ReplicaDataSource(primary, List.of(down, replicaA),
+				Duration.ofMinutes(1), Duration.ZERO, meterRegistry);
+
+		replicas.checkReplicas();
+		assertThat(replicas.availableReplicas()).isEqualTo(1);
+	}
+
+	@Test
+	void pinnedReadsGoToThePrimary() {
+		Routing routing = new Routing(List.of(replicaA));
+
+		assertThat(ReplicaDataSource.onPrimary(routing::read)).isEqualTo("rw-primary");
+		assertThat(routing.read()).isEqualTo("rw-replica-a");
+
+		ReplicaDataSource.pinToPrimary();
+		assertThat(routing.read()).isEqualTo("rw-primary");
+		ReplicaDataSource.clearPin();
+		assertThat(routing.read()).isEqualTo("rw-replica-a");
+	}
+
+	/** The same wiring as ReadWriteDataSourceConfig, with a plain JDBC transaction manager. */
+	private class Routing {
+		final ReplicaDataSource replicas;
+		final JdbcTemplate jdbc;
+		final TransactionTemplate readOnly;
+		final TransactionTemplate readWrite;
+
+		Routing(List<DataSource> replicaDataSources) {
+			replicas = new ReplicaDataSource(primary, replicaDataSources, Duration.ofMinutes(1), Duration.ZERO, meterRegistry);
+			LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+			dataSource.setReadOnlyDataSource(replicas);
+			jdbc = new JdbcTemplate(dataSource);
+			DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+			readOnly = new TransactionTemplate(transactionManager);
+			readOnly.setReadOnly(true);
+			readWrite = new TransactionTemplate(transactionManager);
+		}
+
+		String read() {
+			return readOnly.execute(status -> node());
+		}
+
+		String write() {
+			return readWrite.execute(status -> node());
+		}
+
+		String withoutTransaction() {
+			return node();
+		}
+
+		private String node() {
+			return jdbc.queryForObject("SELECT name FROM node", String.class);
+		}
+	}
+
+	/** A replica whose {@code SHOW REPLICA STATUS} reports these lags in turn; null is a stopped replication. */
+	private static DataSource replicaBehindBy(Long... seconds) throws SQLException {
+		DataSource replica = mock(DataSource.class);
+		Connection connection = mock(Connection.class);
+		Statement statement = mock(Statement.class);
+		ResultSet status = mock(ResultSet.class);
+		when(replica.getConnection()).thenReturn(connection);
+		when(connection.createStatement()).thenReturn(statement);
+		when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(status);
+		when(status.next()).thenReturn(true);
+		var lags = Arrays.asList(seconds).iterator();
+		Long[] last = new Long[1];
+		when(status.getLong("Seconds_Behind_Source")).thenAnswer(call -> {
+			last[0] = lags.next();
+			return last[0] == null ? 0L : last[0];
+		});
+		when(status.wasNull()).thenAnswer(call -> last[0] == null);
+		return replica;
+	}
+
+	private static DataSource database(String name) {
+		return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+	}
+}
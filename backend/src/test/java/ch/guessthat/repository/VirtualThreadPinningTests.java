@@ -0,0 +1,106 @@
+package ch.guessthat.repository;
+
+import ch.guessthat.model.CardEntity;
+import ch.guessthat.util.TextNorm;
+import ch.guessthat.util.Uuids;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The request path in virtual-thread mode: many virtual threads contending for a small Hikari
+ * pool, inserting and reading cards and logging, must never pin their carrier thread (JFR
+ * {@code jdk.VirtualThreadPinned}). Fails on JDKs before 24, where blocking inside
+ * {@code synchronized} (H2, Connector/J 8) still pins, so it runs with the load tests
+ * ({@code mvn -Pload-test test}) rather than in the normal build. Uses H2, not Connector/J; the
+ * load tests with {@code -Dload.db=mysql} cover the MySQL driver.
+ */
+@Slf4j
+@Tag("load")
+class VirtualThreadPinningTests {
+	private static final String LANG = "de-CH";
+	private static final String CAT = "family";
+	private static final String DIFF = "medium";
+
+	@Test
+	void jdbcAndLoggingDoNotPinCarrierThreads() throws Exception {
+		try (HikariDataSource dataSource = new HikariDataSource()) {
+			dataSource.setJdbcUrl("jdbc:h2:mem:pinning;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+			dataSource.setUsername("sa");
+			dataSource.setMaximumPoolSize(4);
+			new ResourceDatabasePopulator(new ClassPathResource("db/h2/schema.sql")).execute(dataSource);
+			NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(dataSource);
+			CardWriteDao writer = new CardWriteDao(jdbc);
+			CardReadDao reader = new CardReadDao(jdbc, new SimpleMeterRegistry());
+
+			List<RecordedEvent> pinned;
+			try (Recording recording = new Recording()) {
+				recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+				recording.start();
+				try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+					for (int i = 0; i < 200; i++) {
+						int n = i;
+						executor.submit(() -> {
+							writer.insertCardsIfNew(List.of(card("Ziel" + n)));
+							int drawn = reader.drawLatest(LANG, CAT, DIFF, 20, 0).size();
+							log.info("PINNING card={} drawn={}", n, drawn);
+							return drawn;
+						});
+					}
+				}
+				recording.stop();
+				Path file = Files.createTempFile("pinning", ".jfr");
+				recording.dump(file);
+				pinned = RecordingFile.readAllEvents(file).stream()
+						.filter(e -> e.getEventType().getName().equals("jdk.VirtualThreadPinned"))
+						.toList();
+				Files.deleteIfExists(file);
+			}
+
+			assertThat(pinned).as(() -> pinned.stream()
+							.map(VirtualThreadPinningTests::topFrames)
+							.distinct()
+							.collect(Collectors.joining("\n---\n", "pinned at:\n", "")))
+					.isEmpty();
+		}
+	}
+
+	private static String topFrames(RecordedEvent event) {
+		if (event.getStackTrace() == null) return "(no stack)";
+		return event.getStackTrace().getFrames().stream()
+				.limit(8)
+				.map(RecordedFrame::getMethod)
+				.map(m -> m.getType().getName() + "." + m.getName())
+				.collect(Collectors.joining("\n  "));
+	}
+
+	private static CardEntity card(String target) {
+		return CardEntity.builder()
+				.id(Uuids.v7())
+				.language(LANG).category(CAT).difficulty(DIFF)
+				.target(target)
+				.normTarget(TextNorm.normLower(target))
+				.randKey(Math.random())
+				.forbidden(List.of("Farbe", "Tisch", "Wasser", "Sonne", "Garten"))
+				.build();
+	}
+}
@@ -0,0 +1,64 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static ch.guessthat.records.RecordManager.*;
+import static ch.guessthat.services.DeckFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CardBulkServiceTests {
+
+	private final CardPersistenceService persistence = mock(CardPersistenceService.class);
+	private final CardReadDao reader = mock(CardReadDao.class);
+	private final CardBulkService bulk = new CardBulkService(persistence, reader, new ObjectMapper(), 2);
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void importsNdjsonInChunksAndRejectsInvalidCards() throws Exception {
+		when(persistence.storeOnlyNew(anyList())).thenAnswer(inv -> ((List<CardDto>) inv.getArgument(0)).subList(0, 1));
+		String ndjson = """
+				{"language":"de-CH","category":"family","difficulty":"medium","target":"Milch","forbidden":["Kuh"],"norm_target":"milch"}
+				{"language":"de-CH","category":"family","difficulty":"medium","target":"Brot","forbidden":["Bäcker"]}
+				{"language":"de-CH","category":"family","difficulty":"medium","target":"","forbidden":["leer"]}
+				{"language":"de-CH","category":"family","difficulty":"medium","target":"Käse","forbidden":["Kuh"]}
+				""";
+
+		ImportResult result = bulk.importCards(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result).isEqualTo(new ImportResult(4, 1, 1, 2));
+		verify(persistence, times(2)).storeOnlyNew(anyList());
+	}
+
+	@Test
+	void importsJsonArrays() throws Exception {
+		when(persistence.storeOnlyNew(anyList())).thenAnswer(inv -> inv.getArgument(0));
+		String json = """
+				[{"language":"de-CH","category":"family","difficulty":"medium","target":"Milch","forbidden":["Kuh"]}]
+				""";
+
+		ImportResult result = bulk.importCards(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(result.inserted()).isEqualTo(1);
+	}
+
+	@Test
+	void exportsDeckAsNdjsonOldestFirst() throws Exception {
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), anyInt(), isNull(), any())).thenReturn(oldestFirst(3));
+		var out = new ByteArrayOutputStream();
+
+		long exported = bulk.exportDeck("de-CH", "family", "medium", out);
+
+		assertThat(exported).isEqualTo(3);
+		assertThat(out.toString(StandardCharsets.UTF_8).lines())
+				.hasSize(3)
+				.first().asString().contains("\"target\":\"Target0\"");
+	}
+}
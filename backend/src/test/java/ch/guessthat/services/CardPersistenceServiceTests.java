@@ -0,0 +1,42 @@
+package ch.guessthat.services;
+
+import ch.guessthat.model.CardEntity;
+import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.repository.CardWriteDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static ch.guessthat.records.RecordManager.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CardPersistenceServiceTests {
+
+	private final CardWriteDao writeDao = mock(CardWriteDao.class);
+	private final NormTargetIndex index = new NormTargetIndex(mock(CardReadDao.class), new SimpleMeterRegistry(), 10, 1000);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final CardPersistenceService persistence =
+			new CardPersistenceService(writeDao, mock(DeckCache.class), mock(DeckBundleStore.class), index, registry);
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void skipsTargetsKnownToTheIndexWithoutQuerying() {
+		when(writeDao.insertCardsIfNew(anyList())).thenAnswer(inv -> inv.getArgument(0));
+		index.add("de-CH", "käse", "Käse");
+
+		List<CardDto> inserted = persistence.storeOnlyNew(List.of(card("KÄSE"), card("Brot")));
+
+		assertThat(inserted).extracting(CardDto::target).containsExactly("Brot");
+		verify(writeDao).insertCardsIfNew(argThat(entities -> entities.size() == 1
+				&& ((List<CardEntity>) entities).getFirst().getTarget().equals("Brot")));
+		assertThat(index.contains("de-CH", "brot")).isTrue();
+		assertThat(registry.counter("cards.stored", "result", "known-duplicate").count()).isEqualTo(1);
+	}
+
+	private static CardDto card(String target) {
+		return new CardDto(null, "de-CH", "family", "medium", target, List.of("Wort"));
+	}
+}
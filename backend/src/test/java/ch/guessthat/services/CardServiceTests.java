@@ -0,0 +1,184 @@
+package ch.guessthat.services;
+
+import ch.guessthat.config.OpenAIProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static ch.guessthat.records.RecordManager.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardServiceTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final CardService service = new CardService(null, new OpenAIProperties(), null, null, null, null, registry);
+
+	@Test
+	void countsRejectionsPerFilterStage() {
+		var batch = new CardBatch(List.of(
+				card("de-CH", "Berg", "Gipfel", "Alpen"),
+				card("en-US", "Mountain", "Peak"),
+				card("de-CH", " ", "Gipfel"),
+				card("de-CH", "BERG", "Tal"),
+				card("de-CH", "Fluss"),
+				card("de-CH", "Scheune", "Alabama Hot Pocket"),
+				card("de-CH", "Schneemann", "Schnee")
+		));
+
+		List<CardDto> accepted = service.filter(batch, "de-CH", new HashSet<>());
+
+		assertThat(accepted).extracting(CardDto::target).containsExactly("Berg");
+		assertThat(registry.counter("cards.filter.accepted").count()).isEqualTo(1);
+		for (String stage : List.of("language", "blank", "duplicate", "forbidden-count", "profanity", "stem")) {
+			assertThat(registry.counter("cards.filter.rejected", "stage", stage).count()).as(stage).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void malformedStreamedCardsAreCountedAndSkipped() {
+		var streaming = new CardService(null, new OpenAIProperties(), new ObjectMapper(), null, null, null, registry);
+
+		assertThat(streaming.parseStreamedCard("{\"target\": \"Berg\", \"forbidden\": 3")).isNull();
+		assertThat(streaming.parseStreamedCard("{\"language\":\"de-CH\",\"target\":\"Berg\",\"forbidden\":[\"Gipfel\"]}"))
+				.extracting(CardDto::target).isEqualTo("Berg");
+		assertThat(registry.counter("cards.filter.rejected", "stage", "malformed").count()).isEqualTo(1);
+	}
+
+	@Test
+	void tokenUsageOfUnlistedDecksIsTaggedOther() {
+		ReflectionTestUtils.setField(service, "tokenDecks", Set.of("de-CH:family:medium"));
+
+		service.tokenCounter("input", "de-CH", "family", "medium").increment(10);
+		service.tokenCounter("input", "xx-" + System.nanoTime(), "family", "medium").increment(20);
+		service.tokenCounter("input", "de-CH", "<script>", "medium").increment(30);
+
+		assertThat(registry.find("openai.tokens").counters()).hasSize(2);
+		assertThat(registry.get("openai.tokens").tag("language", "de-CH").counter().count()).isEqualTo(10);
+		assertThat(registry.get("openai.tokens").tag("language", "other").tag("category", "other").counter().count())
+				.isEqualTo(50);
+	}
+
+	@Test
+	void refillRoundsAreSizedByTheAcceptanceRate() throws Exception {
+		// first round: half of the cards are in the wrong language
+		var model = new StubModel(n -> n % 2 == 0 ? "de-CH" : "en-US");
+		CardService service = generating(model, 150, 1000, 2, 60);
+
+		List<CardDto> cards = service.getOrGenerate("de-CH", "family", "medium", 10);
+
+		assertThat(model.requested).containsExactly(10, 10);
+		assertThat(cards).hasSize(10).extracting(CardDto::language).containsOnly("de-CH");
+	}
+
+	@Test
+	void pooledCardsDoNotInflateTheAcceptanceRate() throws Exception {
+		var model = new StubModel(n -> n % 2 == 0 ? "de-CH" : "en-US");
+		CardService service = generating(model, 150, 1000, 2, 60);
+		var pool = (OverflowPool) ReflectionTestUtils.getField(service, "overflowPool");
+		pool.offer(new DeckKey("de-CH", "family", "medium"), List.of(
+				card("de-CH", "Pool0", "a"), card("de-CH", "Pool1", "a"), card("de-CH", "Pool2", "a"),
+				card("de-CH", "Pool3", "a"), card("de-CH", "Pool4", "a")));
+
+		service.getOrGenerate("de-CH", "family", "medium", 20);
+
+		// round 1: 15 requested, 8 accepted (8/15, not 13/15); round 2: 7 missing / 0.53 = 14
+		assertThat(model.requested).containsExactly(15, 14);
+	}
+
+	@Test
+	void surplusCardsGoToTheOverflowPoolAndServeTheNextRequest() throws Exception {
+		var model = new StubModel(n -> n < 5 ? "en-US" : "de-CH");
+		CardService service = generating(model, 150, 1000, 2, 60);
+
+		// round 1: 10 requested, 5 accepted; round 2: 10 requested for 5 missing, all accepted
+		assertThat(service.getOrGenerate("de-CH", "family", "medium", 10)).hasSize(10);
+		assertThat(model.requested).containsExactly(10, 10);
+
+		List<CardDto> next = service.getOrGenerate("de-CH", "family", "medium", 5);
+		assertThat(next).hasSize(5);
+		assertThat(model.requested).as("served from the pool").containsExactly(10, 10);
+		assertThat(registry.counter("cards.overflow.served").count()).isEqualTo(5);
+	}
+
+	@Test
+	void requestsAreCappedAtMaxRequestCountAndSplitIntoSubBatches() throws Exception {
+		var model = new StubModel(n -> "de-CH");
+		CardService service = generating(model, 8, 20, 2, 60);
+
+		assertThat(service.getOrGenerate("de-CH", "family", "medium", 100)).hasSize(20);
+		assertThat(model.requested).containsExactlyInAnyOrder(8, 8, 4);
+	}
+
+	@Test
+	void aSingleBatchIsCutOffAtTheDeadline() throws Exception {
+		var model = new StubModel(n -> "de-CH");
+		model.latencyMs = 10_000;
+		CardService service = generating(model, 150, 1000, 2, 1);
+
+		long start = System.nanoTime();
+		List<CardDto> cards = service.getOrGenerate("de-CH", "family", "medium", 50);
+
+		assertThat(cards).isEmpty();
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+		assertThat(model.requested).containsExactly(50);
+	}
+
+	private CardService generating(StubModel model, int maxGenCount, int maxRequestCount, int maxRounds, long deadlineSeconds) {
+		CardService service = new CardService(null, new OpenAIProperties(), null, new OverflowPool(registry, 500), null, null, registry) {
+			@Override
+			CardBatch requestBatch(String lang, String category, String difficulty, int count) {
+				return model.request(count);
+			}
+		};
+		ReflectionTestUtils.setField(service, "maxGenCount", maxGenCount);
+		ReflectionTestUtils.setField(service, "maxRequestCount", maxRequestCount);
+		ReflectionTestUtils.setField(service, "fanOutConcurrency", 4);
+		ReflectionTestUtils.setField(service, "fanOutMaxRounds", maxRounds);
+		ReflectionTestUtils.setField(service, "fanOutDeadlineSeconds", deadlineSeconds);
+		return service;
+	}
+
+	/** Returns {@code count} cards with fresh targets; {@code language} picks each card's language by its number. */
+	private static final class StubModel {
+		final List<Integer> requested = new CopyOnWriteArrayList<>();
+		final AtomicInteger next = new AtomicInteger();
+		final IntFunction<String> language;
+		volatile long latencyMs;
+
+		StubModel(IntFunction<String> language) {
+			this.language = language;
+		}
+
+		CardBatch request(int count) {
+			requested.add(count);
+			if (latencyMs > 0) {
+				try {
+					Thread.sleep(latencyMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException(e);
+				}
+			}
+			List<CardDto> cards = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int n = next.getAndIncrement();
+				cards.add(new CardDto(null, language.apply(n), "family", "medium", "Ziel" + n, List.of("Farbe", "Tisch")));
+			}
+			return new CardBatch(cards);
+		}
+	}
+
+	private static CardDto card(String lang, String target, String... forbidden) {
+		return new CardDto(null, lang, "family", "medium", target, List.of(forbidden));
+	}
+}
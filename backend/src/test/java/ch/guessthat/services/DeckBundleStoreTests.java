@@ -0,0 +1,134 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.services.DeckBundleStore.DeckBundle;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static ch.guessthat.records.RecordManager.*;
+import static ch.guessthat.services.DeckFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class DeckBundleStoreTests {
+
+	private static final DeckKey DECK = new DeckKey("de-CH", "family", "medium");
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final CardReadDao reader = mock(CardReadDao.class);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void buildsOnceAndServesFromDisk() throws IOException {
+		DeckBundleStore store = new DeckBundleStore(reader, objectMapper, dir, 0);
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), anyInt(), isNull(), any())).thenReturn(oldestFirst(0, 3));
+
+		DeckBundle first = store.bundle("de-CH", "family", "medium");
+		DeckBundle second = store.bundle("de-CH", "family", "medium");
+
+		assertThat(second).isSameAs(first);
+		assertThat(read(first)).extracting(CardDto::id).containsExactly("0", "1", "2");
+		assertThat(first.etag(true)).isNotEqualTo(first.etag(false));
+		verify(reader, times(1)).drawSince(anyString(), anyString(), anyString(), anyInt(), any(), any());
+	}
+
+	@Test
+	void appendsOnlyCardsPastWatermark() throws IOException {
+		DeckBundleStore store = new DeckBundleStore(reader, objectMapper, dir, 0);
+		List<DeckEntry> initial = oldestFirst(0, 2);
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), anyInt(), isNull(), any())).thenReturn(initial);
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), anyInt(), eq(initial.getLast().cursor()), any()))
+				.thenReturn(oldestFirst(2, 2));
+
+		DeckBundle before = store.bundle("de-CH", "family", "medium");
+		store.changed(Set.of(DECK));
+		// runs on the bundle thread after the append, so the append has finished when it returns
+		store.bundle("de-CH", "family", "hard");
+
+		DeckBundle after = store.bundle("de-CH", "family", "medium");
+		assertThat(after.cards()).isEqualTo(4);
+		assertThat(read(after)).extracting(CardDto::id).containsExactly("0", "1", "2", "3");
+		assertThat(Files.exists(before.file())).isTrue();
+	}
+
+	@Test
+	void repeatedAppendsStayOneGzipMember() throws IOException {
+		DeckBundleStore store = new DeckBundleStore(reader, objectMapper, dir, 0);
+		List<DeckEntry> initial = oldestFirst(0, 50);
+		List<DeckEntry> second = oldestFirst(50, 1);
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), anyInt(), isNull(), any())).thenReturn(initial);
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), anyInt(), eq(initial.getLast().cursor()), any()))
+				.thenReturn(second);
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), anyInt(), eq(second.getLast().cursor()), any()))
+				.thenReturn(oldestFirst(51, 2));
+
+		store.bundle("de-CH", "family", "medium");
+		for (int i = 0; i < 2; i++) {
+			store.changed(Set.of(DECK));
+			store.bundle("de-CH", "family", "hard");
+		}
+
+		DeckBundle after = store.bundle("de-CH", "family", "medium");
+		assertThat(read(after)).extracting(CardDto::id).hasSize(53).startsWith("0", "1").endsWith("51", "52");
+	}
+
+	@Test
+	void reportsEmptyDeckAsMissing() throws IOException {
+		DeckBundleStore store = new DeckBundleStore(reader, objectMapper, dir, 0);
+		when(reader.drawSince(anyString(), anyString(), anyString(), anyInt(), any(), any())).thenReturn(List.of());
+
+		assertThat(store.bundle("de-CH", "family", "medium")).isNull();
+	}
+
+	@Test
+	void emptyDeckIsScannedOnceUntilCardsAreAdded() throws IOException {
+		DeckBundleStore store = new DeckBundleStore(reader, objectMapper, dir, 0);
+		when(reader.drawSince(anyString(), anyString(), anyString(), anyInt(), any(), any())).thenReturn(List.of());
+
+		assertThat(store.bundle("de-CH", "family", "medium")).isNull();
+		assertThat(store.bundle("de-CH", "family", "medium")).isNull();
+		verify(reader, times(1)).drawSince(anyString(), anyString(), anyString(), anyInt(), any(), any());
+
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), anyInt(), isNull(), any())).thenReturn(oldestFirst(0, 2));
+		store.changed(Set.of(DECK));
+		store.bundle("de-CH", "family", "hard");
+
+		assertThat(store.bundle("de-CH", "family", "medium").cards()).isEqualTo(2);
+	}
+
+	/** Decodes like Okio's GzipSource: exactly one gzip member and nothing after its trailer. */
+	private List<CardDto> read(DeckBundle bundle) throws IOException {
+		byte[] gzip = Files.readAllBytes(bundle.file());
+		assertThat(gzip[3]).as("header flags").isZero();
+		Inflater inflater = new Inflater(true);
+		inflater.setInput(gzip, 10, gzip.length - 10);
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		try {
+			while (!inflater.finished()) {
+				int n = inflater.inflate(buffer);
+				if (n == 0 && inflater.needsInput()) throw new EOFException("truncated gzip member");
+				json.write(buffer, 0, n);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		}
+		assertThat(inflater.getRemaining()).as("bytes after the first member's deflate data").isEqualTo(8);
+		inflater.end();
+		return objectMapper.readValue(json.toByteArray(), new TypeReference<>() {});
+	}
+}
@@ -0,0 +1,106 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.util.CardCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static ch.guessthat.records.RecordManager.*;
+import static ch.guessthat.services.DeckFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class DeckCacheTests {
+
+	private final CardReadDao reader = mock(CardReadDao.class);
+	private final DeckCache cache = new DeckCache(reader, new SimpleMeterRegistry(), 10, 1_000, 60);
+
+	@Test
+	void servesRepeatedDrawsFromMemory() {
+		when(reader.drawLatestAfter("de-CH", "family", "medium", 11, null)).thenReturn(newestFirst(4));
+
+		assertThat(cache.drawLatest("de-CH", "family", "medium", 2, 0)).extracting(CardDto::id).containsExactly("0", "1");
+		assertThat(cache.drawLatest("de-CH", "family", "medium", 5, 2)).extracting(CardDto::id).containsExactly("2", "3");
+		assertThat(cache.drawLatest("de-CH", "family", "medium", 5, 7)).isEmpty();
+
+		verify(reader, times(1)).drawLatestAfter("de-CH", "family", "medium", 11, null);
+	}
+
+	@Test
+	void readsThroughBeyondCachedWindow() {
+		cache.drawLatest("de-CH", "family", "medium", 5, 8);
+
+		verify(reader).drawLatest("de-CH", "family", "medium", 5, 8);
+	}
+
+	@Test
+	void reloadsAfterInvalidation() {
+		when(reader.drawLatestAfter("de-CH", "family", "medium", 11, null)).thenReturn(newestFirst(1), newestFirst(3));
+
+		assertThat(cache.drawLatest("de-CH", "family", "medium", 10, 0)).hasSize(1);
+		cache.invalidate(Set.of(new DeckKey("de-CH", "family", "medium")));
+		assertThat(cache.drawLatest("de-CH", "family", "medium", 10, 0)).hasSize(3);
+	}
+
+	@Test
+	void samplesCompleteDecksInMemory() {
+		when(reader.drawLatestAfter("de-CH", "family", "medium", 11, null)).thenReturn(newestFirst(6));
+
+		assertThat(cache.drawRandom("de-CH", "family", "medium", 4)).hasSize(4).doesNotHaveDuplicates();
+		assertThat(cache.drawRandom("de-CH", "family", "medium", 50)).hasSize(6);
+
+		verify(reader, never()).drawRandom(anyString(), anyString(), anyString(), anyInt());
+	}
+
+	@Test
+	void usesIndexedSamplerForDecksLargerThanWindow() {
+		when(reader.drawLatestAfter("de-CH", "family", "medium", 11, null)).thenReturn(newestFirst(11));
+
+		cache.drawRandom("de-CH", "family", "medium", 3);
+
+		verify(reader).drawRandom("de-CH", "family", "medium", 3);
+	}
+
+	@Test
+	void pagesWithCursorsInsideWindow() {
+		when(reader.drawLatestAfter("de-CH", "family", "medium", 11, null)).thenReturn(newestFirst(5));
+
+		CardPage first = cache.drawPage("de-CH", "family", "medium", 3, null);
+		CardPage second = cache.drawPage("de-CH", "family", "medium", 3, first.nextCursor());
+
+		assertThat(first.cards()).extracting(CardDto::id).containsExactly("0", "1", "2");
+		assertThat(second.cards()).extracting(CardDto::id).containsExactly("3", "4");
+		assertThat(second.nextCursor()).isNull();
+		verify(reader, times(1)).drawLatestAfter(anyString(), anyString(), anyString(), anyInt(), any());
+	}
+
+	@Test
+	void continuesWithKeysetSeekPastWindow() {
+		List<DeckEntry> deck = newestFirst(11);
+		when(reader.drawLatestAfter("de-CH", "family", "medium", 11, null)).thenReturn(deck);
+		CardCursor last = deck.get(9).cursor();
+
+		cache.drawPage("de-CH", "family", "medium", 3, last.encode());
+
+		verify(reader).drawLatestAfter("de-CH", "family", "medium", 3, last);
+	}
+
+	@Test
+	void cachesDeckVersionUntilInvalidated() {
+		DeckVersion v1 = new DeckVersion(1, 4, Instant.parse("2025-01-01T00:00:00Z"));
+		DeckVersion v2 = new DeckVersion(2, 6, Instant.parse("2025-01-02T00:00:00Z"));
+		when(reader.deckVersion("de-CH", "family", "medium")).thenReturn(v1, v2);
+
+		assertThat(cache.version("de-CH", "family", "medium")).isEqualTo(v1);
+		assertThat(cache.version("de-CH", "family", "medium")).isEqualTo(v1);
+		cache.invalidate(Set.of(new DeckKey("de-CH", "family", "medium")));
+		assertThat(cache.version("de-CH", "family", "medium").etag()).isEqualTo("\"2-6\"");
+
+		verify(reader, times(2)).deckVersion("de-CH", "family", "medium");
+		verify(reader, never()).drawLatestAfter(anyString(), anyString(), anyString(), anyInt(), any());
+	}
+}
@@ -0,0 +1,36 @@
+package ch.guessthat.services;
+
+import ch.guessthat.util.CardCursor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static ch.guessthat.records.RecordManager.*;
+
+/** Synthetic de-CH/family/medium deck entries; card {@code i} has id {@code "i"}. */
+final class DeckFixtures {
+	private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+	private DeckFixtures() {}
+
+	/** Cards {@code from} to {@code from + n - 1}, oldest first. */
+	static List<DeckEntry> oldestFirst(int from, int n) {
+		return IntStream.range(from, from + n).mapToObj(i -> entry(i, START.plusSeconds(i))).toList();
+	}
+
+	static List<DeckEntry> oldestFirst(int n) {
+		return oldestFirst(0, n);
+	}
+
+	/** Cards {@code 0} to {@code n - 1}, newest first. */
+	static List<DeckEntry> newestFirst(int n) {
+		return IntStream.range(0, n).mapToObj(i -> entry(i, START.minusSeconds(i))).toList();
+	}
+
+	private static DeckEntry entry(int i, Instant createdAt) {
+		return new DeckEntry(
+				new CardDto(Integer.toString(i), "de-CH", "family", "medium", "Target" + i, List.of("a", "b")),
+				new CardCursor(createdAt, Integer.toString(i)));
+	}
+}
@@ -0,0 +1,53 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import ch.guessthat.util.CardCursor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static ch.guessthat.records.RecordManager.*;
+import static ch.guessthat.services.DeckFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class DeckSyncServiceTests {
+
+	private final CardReadDao reader = mock(CardReadDao.class);
+	private final DeckSyncService sync = new DeckSyncService(reader, 5);
+
+	@Test
+	void pagesFromWatermarkAndReportsMore() {
+		List<DeckEntry> deck = oldestFirst(4);
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), eq(4), isNull(), any())).thenReturn(deck);
+
+		SyncPage page = sync.since("de-CH", "family", "medium", 3, null);
+
+		assertThat(page.cards()).extracting(CardDto::id).containsExactly("0", "1", "2");
+		assertThat(page.more()).isTrue();
+		assertThat(CardCursor.decode(page.watermark())).isEqualTo(deck.get(2).cursor());
+	}
+
+	@Test
+	void keepsWatermarkWhenNothingIsNew() {
+		CardCursor seen = oldestFirst(1).getFirst().cursor();
+		when(reader.drawSince(eq("de-CH"), eq("family"), eq("medium"), eq(11), eq(seen), any())).thenReturn(List.of());
+
+		SyncPage page = sync.since("de-CH", "family", "medium", 10, seen.encode());
+
+		assertThat(page.cards()).isEmpty();
+		assertThat(page.more()).isFalse();
+		assertThat(page.watermark()).isEqualTo(seen.encode());
+	}
+
+	@Test
+	void withholdsCardsYoungerThanSettleWindow() {
+		Instant before = Instant.now().minusSeconds(5);
+
+		sync.since("de-CH", "family", "medium", 10, null);
+
+		verify(reader).drawSince(eq("de-CH"), eq("family"), eq("medium"), eq(11), isNull(),
+				argThat(cutoff -> !cutoff.isBefore(before) && cutoff.isBefore(Instant.now().minusSeconds(4))));
+	}
+}
@@ -0,0 +1,77 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ch.guessthat.records.RecordManager.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class DrawSessionServiceTests {
+
+	private final CardReadDao reader = mock(CardReadDao.class);
+	private final DeckCache deckCache = mock(DeckCache.class);
+	private final DrawSessionService sessions = new DrawSessionService(reader, deckCache, new SimpleMeterRegistry(), 100, 60);
+	/** Cards the (possibly lagging) database has; the deck version always says ten. */
+	private int stored = 10;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void deckOfTen() {
+		when(deckCache.version("de-CH", "family", "medium")).thenReturn(new DeckVersion(1, 10, Instant.EPOCH));
+		when(reader.drawOrdinals(eq("de-CH"), eq("family"), eq("medium"), anyList())).thenAnswer(inv -> {
+			Map<Integer, CardDto> out = new LinkedHashMap<>();
+			for (int o : (List<Integer>) inv.getArgument(3)) {
+				if (o < stored) out.put(o, new CardDto(Integer.toString(o), "de-CH", "family", "medium", "Target" + o, List.of("a")));
+			}
+			return out;
+		});
+	}
+
+	@Test
+	void neverDealsACardTwiceInOneSession() {
+		List<String> dealt = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			sessions.draw("game-1", "de-CH", "family", "medium", 3, true).forEach(c -> dealt.add(c.id()));
+		}
+
+		assertThat(dealt).hasSize(10).doesNotHaveDuplicates();
+		assertThat(sessions.draw("game-1", "de-CH", "family", "medium", 3, true)).isEmpty();
+	}
+
+	@Test
+	void dealsNewestFirstAndKeepsSessionsApart() {
+		assertThat(sessions.draw("game-1", "de-CH", "family", "medium", 3, false))
+				.extracting(CardDto::id).containsExactly("9", "8", "7");
+		assertThat(sessions.draw("game-1", "de-CH", "family", "medium", 2, false))
+				.extracting(CardDto::id).containsExactly("6", "5");
+		assertThat(sessions.draw("game-2", "de-CH", "family", "medium", 1, false))
+				.extracting(CardDto::id).containsExactly("9");
+	}
+
+	@Test
+	void ordinalsMissingFromTheDatabaseAreDealtLater() {
+		stored = 8;
+		assertThat(sessions.draw("game-1", "de-CH", "family", "medium", 3, false))
+				.extracting(CardDto::id).containsExactly("7");
+
+		stored = 10;
+		assertThat(sessions.draw("game-1", "de-CH", "family", "medium", 3, false))
+				.extracting(CardDto::id).containsExactly("9", "8", "6");
+	}
+
+	@Test
+	void rejectsOverlongSessionIds() {
+		assertThatThrownBy(() -> sessions.draw("x".repeat(65), "de-CH", "family", "medium", 1, true))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
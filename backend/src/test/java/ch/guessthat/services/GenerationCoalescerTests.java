@@ -0,0 +1,108 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static ch.guessthat.records.RecordManager.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class GenerationCoalescerTests {
+
+	private final CardService cardService = mock(CardService.class);
+	private final CardPersistenceService persistence = mock(CardPersistenceService.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final CardReadDao reader = mock(CardReadDao.class);
+	private final GenerationCoalescer coalescer = new GenerationCoalescer(cardService, persistence, reader, registry);
+
+	@Test
+	void concurrentCallersForSameDeckShareOneGeneration() throws Exception {
+		var started = new CountDownLatch(1);
+		var release = new CountDownLatch(1);
+		when(cardService.getOrGenerate("de-CH", "family", "medium", 10)).thenAnswer(inv -> {
+			started.countDown();
+			release.await();
+			return cards(10);
+		});
+		when(persistence.storeOnlyNew(anyList())).thenAnswer(inv -> inv.getArgument(0));
+		when(reader.drawRandom("de-CH", "family", "medium", 14)).thenReturn(cards(20));
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			Future<GenerationResult> leader = executor.submit(() -> coalescer.generateAndStore("de-CH", "family", "medium", 10));
+			started.await();
+			Future<GenerationResult> joiner = executor.submit(() -> coalescer.generateAndStore("de-CH", "family", "medium", 4));
+			await().until(() -> registry.counter("cards.generation.coalesced").count() == 1);
+			release.countDown();
+
+			assertThat(leader.get().cards()).hasSize(10);
+			assertThat(leader.get().inserted()).isEqualTo(10);
+			assertThat(joiner.get().cards()).extracting(CardDto::target).containsExactly("T10", "T11", "T12", "T13");
+			assertThat(joiner.get().inserted()).isZero();
+		}
+		verify(cardService, times(1)).getOrGenerate(anyString(), anyString(), anyString(), anyInt());
+		verify(persistence, times(1)).storeOnlyNew(anyList());
+	}
+
+	@Test
+	void joinersGetDifferentCards() throws Exception {
+		var started = new CountDownLatch(1);
+		var release = new CountDownLatch(1);
+		when(cardService.getOrGenerate("de-CH", "family", "medium", 10)).thenAnswer(inv -> {
+			started.countDown();
+			release.await();
+			return cards(10);
+		});
+		when(persistence.storeOnlyNew(anyList())).thenAnswer(inv -> inv.getArgument(0));
+		// each random draw of the refreshed deck comes back different, overlapping the leader's cards
+		var draws = new AtomicInteger();
+		when(reader.drawRandom("de-CH", "family", "medium", 15)).thenAnswer(inv -> {
+			int from = 5 + draws.getAndIncrement() * 10;
+			return IntStream.range(from, from + 15)
+					.mapToObj(i -> new CardDto(null, "de-CH", "family", "medium", "T" + i, List.of("a")))
+					.toList();
+		});
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			Future<GenerationResult> leader = executor.submit(() -> coalescer.generateAndStore("de-CH", "family", "medium", 10));
+			started.await();
+			Future<GenerationResult> first = executor.submit(() -> coalescer.generateAndStore("de-CH", "family", "medium", 5));
+			Future<GenerationResult> second = executor.submit(() -> coalescer.generateAndStore("de-CH", "family", "medium", 5));
+			await().until(() -> registry.counter("cards.generation.coalesced").count() == 2);
+			release.countDown();
+
+			List<String> leaderTargets = leader.get().cards().stream().map(CardDto::target).toList();
+			List<String> firstTargets = first.get().cards().stream().map(CardDto::target).toList();
+			List<String> secondTargets = second.get().cards().stream().map(CardDto::target).toList();
+			assertThat(firstTargets).hasSize(5).doesNotContainAnyElementsOf(leaderTargets);
+			assertThat(secondTargets).hasSize(5).doesNotContainAnyElementsOf(leaderTargets).isNotEqualTo(firstTargets);
+		}
+	}
+
+	@Test
+	void generatesAgainOnceTheFlightHasLanded() throws Exception {
+		when(cardService.getOrGenerate("de-CH", "family", "medium", 2)).thenReturn(cards(2));
+		when(persistence.storeOnlyNew(anyList())).thenReturn(List.of());
+
+		coalescer.generateAndStore("de-CH", "family", "medium", 2);
+		coalescer.generateAndStore("de-CH", "family", "medium", 2);
+
+		verify(cardService, times(2)).getOrGenerate("de-CH", "family", "medium", 2);
+	}
+
+	private static List<CardDto> cards(int n) {
+		return IntStream.range(0, n)
+				.mapToObj(i -> new CardDto(null, "de-CH", "family", "medium", "T" + i, List.of("a")))
+				.toList();
+	}
+}
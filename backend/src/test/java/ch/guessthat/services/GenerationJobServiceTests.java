@@ -0,0 +1,54 @@
+package ch.guessthat.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static ch.guessthat.records.RecordManager.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.*;
+
+class GenerationJobServiceTests {
+
+	private final GenerationCoalescer coalescer = mock(GenerationCoalescer.class);
+	private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(1), Thread.ofVirtual().factory());
+	private final GenerationJobService jobs = new GenerationJobService(coalescer, executor);
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void completesJobWithGeneratedCards() throws Exception {
+		var card = new CardDto("1", "de-CH", "family", "medium", "Milch", List.of("Kuh"));
+		when(coalescer.generateAndStore("de-CH", "family", "medium", 5)).thenReturn(new GenerationResult(List.of(card), 1));
+
+		GenerationJob job = jobs.submit("de-CH", "family", "medium", 5);
+
+		await().until(() -> jobs.find(job.id()).orElseThrow().status() == JobStatus.DONE);
+		assertThat(jobs.find(job.id()).orElseThrow().cards()).containsExactly(card);
+		assertThat(jobs.find(job.id()).orElseThrow().inserted()).isEqualTo(1);
+	}
+
+	@Test
+	void rejectsWhenQueueIsFull() throws Exception {
+		var release = new CountDownLatch(1);
+		when(coalescer.generateAndStore(anyString(), anyString(), anyString(), anyInt())).thenAnswer(inv -> {
+			release.await();
+			return new GenerationResult(List.of(), 0);
+		});
+
+		jobs.submit("de-CH", "family", "medium", 5);
+		jobs.submit("de-CH", "family", "medium", 5);
+
+		assertThatThrownBy(() -> jobs.submit("de-CH", "family", "medium", 5))
+				.isInstanceOf(RejectedExecutionException.class);
+		release.countDown();
+	}
+}
@@ -0,0 +1,69 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static ch.guessthat.records.RecordManager.DeckKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class NormTargetIndexTests {
+	private static final DeckKey FAMILY = new DeckKey("de-CH", "family", "medium");
+	private static final DeckKey FOOD = new DeckKey("en-US", "food", "easy");
+
+	private final CardReadDao reader = mock(CardReadDao.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final NormTargetIndex index = new NormTargetIndex(reader, meterRegistry, 2, 100);
+
+	@Test
+	void loadsStoredTargetsPerLanguage() {
+		when(reader.countByDeck()).thenReturn(Map.of(FAMILY, 1L, FOOD, 1L));
+		doAnswer(inv -> {
+			DeckKey deck = inv.getArgument(0);
+			CardReadDao.TargetConsumer consumer = inv.getArgument(2);
+			if (deck.equals(FAMILY)) consumer.accept("de-CH", "käse", "Käse");
+			else consumer.accept("en-US", "cheese", "Cheese");
+			return null;
+		}).when(reader).forEachRecentTarget(any(), anyInt(), any());
+
+		index.load();
+
+		assertThat(index.contains("de-CH", "käse")).isTrue();
+		assertThat(index.contains("en-US", "käse")).isFalse();
+		assertThat(index.sampleTargets("de-CH", 5)).containsExactly("Käse");
+	}
+
+	@Test
+	void loadsAnEqualShareOfTheNewestCardsOfEachDeck() {
+		when(reader.countByDeck()).thenReturn(Map.of(FAMILY, 5000L, FOOD, 20L));
+
+		index.load();
+
+		verify(reader).forEachRecentTarget(eq(FAMILY), eq(50), any());
+		verify(reader).forEachRecentTarget(eq(FOOD), eq(50), any());
+	}
+
+	@Test
+	void holdsAtMostMaxTargets() {
+		for (int i = 0; i < 500; i++) index.add("de-CH", "ziel" + i, "Ziel" + i);
+
+		assertThat(meterRegistry.get("cards.norm-index.size").gauge().value()).isLessThanOrEqualTo(100);
+	}
+
+	@Test
+	void hintPoolKeepsMostRecentTargets() {
+		index.add("de-CH", "apfel", "Apfel");
+		index.add("de-CH", "birne", "Birne");
+		index.add("de-CH", "apfel", "Apfel");
+		index.add("de-CH", "kirsche", "Kirsche");
+
+		assertThat(index.sampleTargets("de-CH", 5)).containsExactlyInAnyOrder("Birne", "Kirsche");
+		assertThat(index.sampleTargets("de-CH", 1)).hasSize(1);
+		assertThat(index.sampleTargets("fr-CH", 5)).isEmpty();
+	}
+}
@@ -0,0 +1,36 @@
+package ch.guessthat.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenAiBulkheadTests {
+
+	private final OpenAiBulkhead bulkhead = new OpenAiBulkhead(new SimpleMeterRegistry(), 1, 0);
+
+	@Test
+	void rejectsWhenAllPermitsAreHeld() throws Exception {
+		OpenAiBulkhead.Permit permit = bulkhead.acquire();
+
+		assertThatThrownBy(bulkhead::acquire).isInstanceOf(RejectedExecutionException.class);
+		assertThatThrownBy(() -> bulkhead.call(() -> "never")).isInstanceOf(RejectedExecutionException.class);
+
+		permit.close();
+		assertThat(bulkhead.call(() -> "ran")).isEqualTo("ran");
+	}
+
+	@Test
+	void closingAPermitTwiceReleasesItOnce() {
+		OpenAiBulkhead.Permit permit = bulkhead.acquire();
+		permit.close();
+		permit.close();
+
+		OpenAiBulkhead.Permit next = bulkhead.acquire();
+		assertThatThrownBy(bulkhead::acquire).isInstanceOf(RejectedExecutionException.class);
+		next.close();
+	}
+}
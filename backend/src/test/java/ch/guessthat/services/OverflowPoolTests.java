@@ -0,0 +1,42 @@
+package ch.guessthat.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static ch.guessthat.records.RecordManager.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OverflowPoolTests {
+
+	private static final DeckKey DECK = new DeckKey("de-CH", "family", "medium");
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final OverflowPool pool = new OverflowPool(registry, 3);
+
+	@Test
+	void servesSurplusBeforeGenerating() {
+		pool.offer(DECK, cards(2));
+
+		assertThat(pool.take(DECK, 5)).extracting(CardDto::target).containsExactly("T0", "T1");
+		assertThat(pool.take(DECK, 5)).isEmpty();
+		assertThat(registry.counter("cards.overflow.requested").count()).isEqualTo(10);
+		assertThat(registry.counter("cards.overflow.served").count()).isEqualTo(2);
+	}
+
+	@Test
+	void dropsOldestCardsAboveDeckLimit() {
+		pool.offer(DECK, cards(5));
+
+		assertThat(pool.take(DECK, 10)).extracting(CardDto::target).containsExactly("T2", "T3", "T4");
+		assertThat(registry.get("cards.overflow.size").gauge().value()).isZero();
+	}
+
+	private static List<CardDto> cards(int n) {
+		return IntStream.range(0, n)
+				.mapToObj(i -> new CardDto(null, "de-CH", "family", "medium", "T" + i, List.of("a")))
+				.toList();
+	}
+}
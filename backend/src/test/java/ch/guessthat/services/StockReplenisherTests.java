@@ -0,0 +1,118 @@
+package ch.guessthat.services;
+
+import ch.guessthat.repository.CardReadDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ch.guessthat.records.RecordManager.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class StockReplenisherTests {
+
+	private static final DeckKey FAMILY = new DeckKey("de-CH", "family", "medium");
+	private static final DeckKey ANIMALS = new DeckKey("de-CH", "animals", "medium");
+	private static final DeckKey SPORT = new DeckKey("de-CH", "sport", "medium");
+
+	private final CardReadDao reader = mock(CardReadDao.class);
+	private final GenerationJobService jobs = mock(GenerationJobService.class);
+	private final Map<String, GenerationJob> submitted = new ConcurrentHashMap<>();
+	private final AtomicInteger ids = new AtomicInteger();
+
+	@BeforeEach
+	void fakeJobs() {
+		doAnswer(call -> {
+			var job = new GenerationJob("job-" + ids.incrementAndGet(), JobStatus.QUEUED, call.getArgument(0),
+					call.getArgument(1), call.getArgument(2), call.getArgument(3), Instant.now(), null, null, null, null);
+			submitted.put(job.id(), job);
+			return job;
+		}).when(jobs).submit(anyString(), anyString(), anyString(), anyInt());
+		when(jobs.find(anyString())).thenAnswer(call -> Optional.ofNullable(submitted.get(call.<String>getArgument(0))));
+	}
+
+	@Test
+	void topsUpOnlyDecksBelowTheLowWatermark() {
+		when(reader.countByDeck()).thenReturn(Map.of(FAMILY, 199L, ANIMALS, 200L));
+
+		replenisher(2, 15, "de-CH:sport:medium").replenish();
+
+		verify(jobs).submit("de-CH", "family", "medium", 50);
+		verify(jobs).submit("de-CH", "sport", "medium", 50);
+		verify(jobs, never()).submit(eq("de-CH"), eq("animals"), anyString(), anyInt());
+	}
+
+	@Test
+	void runsAtMostMaxConcurrentJobsLowestStockFirst() {
+		when(reader.countByDeck()).thenReturn(Map.of(FAMILY, 100L, ANIMALS, 10L, SPORT, 50L));
+		StockReplenisher replenisher = replenisher(2, 0);
+
+		replenisher.replenish();
+		replenisher.replenish();
+
+		verify(jobs).submit("de-CH", "animals", "medium", 50);
+		verify(jobs).submit("de-CH", "sport", "medium", 50);
+		verify(jobs, times(2)).submit(anyString(), anyString(), anyString(), anyInt());
+	}
+
+	@Test
+	void finishedAndForgottenJobsFreeTheirSlot() {
+		when(reader.countByDeck()).thenReturn(
+				Map.of(FAMILY, 100L, ANIMALS, 10L),
+				Map.of(FAMILY, 100L, ANIMALS, 10L),
+				Map.of(FAMILY, 100L, ANIMALS, 500L));
+		StockReplenisher replenisher = replenisher(1, 0);
+
+		replenisher.replenish();
+		finish("job-1", JobStatus.DONE);
+		replenisher.replenish();
+		// expired from the job store while still running
+		submitted.remove("job-2");
+		replenisher.replenish();
+
+		verify(jobs, times(2)).submit("de-CH", "animals", "medium", 50);
+		verify(jobs).submit("de-CH", "family", "medium", 50);
+	}
+
+	@Test
+	void aDeckIsNotToppedUpAgainWithinItsCooldown() {
+		when(reader.countByDeck()).thenReturn(Map.of(FAMILY, 10L));
+		StockReplenisher replenisher = replenisher(2, 15);
+
+		replenisher.replenish();
+		finish("job-1", JobStatus.FAILED);
+		replenisher.replenish();
+
+		verify(jobs, times(1)).submit(anyString(), anyString(), anyString(), anyInt());
+	}
+
+	@Test
+	void aFullGenerationQueueIsRetriedOnTheNextRun() {
+		when(reader.countByDeck()).thenReturn(Map.of(FAMILY, 10L));
+		StockReplenisher replenisher = replenisher(2, 15);
+		doThrow(new RejectedExecutionException("full")).when(jobs).submit(anyString(), anyString(), anyString(), anyInt());
+
+		replenisher.replenish();
+		assertThat(submitted).isEmpty();
+
+		fakeJobs();
+		replenisher.replenish();
+		assertThat(submitted).hasSize(1);
+	}
+
+	private StockReplenisher replenisher(int maxConcurrent, long cooldownMinutes, String... decks) {
+		return new StockReplenisher(reader, jobs, 200, 50, maxConcurrent, cooldownMinutes, List.of(decks));
+	}
+
+	private void finish(String id, JobStatus status) {
+		GenerationJob job = submitted.get(id);
+		submitted.put(id, status == JobStatus.DONE ? job.done(List.of(), 0) : job.failed("boom"));
+	}
+}
@@ -0,0 +1,33 @@
+package ch.guessthat.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AcceptEncodingTests {
+
+	@Test
+	void acceptsGzipUnlessItsQualityIsZero() {
+		assertThat(AcceptEncoding.acceptsGzip("gzip, deflate, br")).isTrue();
+		assertThat(AcceptEncoding.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+		assertThat(AcceptEncoding.acceptsGzip("x-gzip")).isTrue();
+		assertThat(AcceptEncoding.acceptsGzip("gzip;q=0")).isFalse();
+		assertThat(AcceptEncoding.acceptsGzip("br, gzip; q=0.000")).isFalse();
+	}
+
+	@Test
+	void fallsBackToTheWildcard() {
+		assertThat(AcceptEncoding.acceptsGzip("*")).isTrue();
+		assertThat(AcceptEncoding.acceptsGzip("br, *;q=0.1")).isTrue();
+		assertThat(AcceptEncoding.acceptsGzip("*;q=0")).isFalse();
+		assertThat(AcceptEncoding.acceptsGzip("gzip;q=0, *")).isFalse();
+	}
+
+	@Test
+	void identityOnlyClientsDoNotGetGzip() {
+		assertThat(AcceptEncoding.acceptsGzip(null)).isFalse();
+		assertThat(AcceptEncoding.acceptsGzip("")).isFalse();
+		assertThat(AcceptEncoding.acceptsGzip("identity, br")).isFalse();
+		assertThat(AcceptEncoding.acceptsGzip("gzipped")).isFalse();
+	}
+}
@@ -0,0 +1,27 @@
+package ch.guessthat.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardStreamParserTests {
+
+	@Test
+	void emitsEachCardWhenItsObjectCloses() {
+		String doc = """
+				{"cards":[{"target":"Milch","forbidden":["Kuh","{Glas}"]},{"target":"Sag \\"Hallo\\"","forbidden":["]"]}]}""";
+		var parser = new CardStreamParser();
+		List<String> cards = new ArrayList<>();
+
+		for (int i = 0; i < doc.length(); i += 3) {
+			cards.addAll(parser.accept(doc.substring(i, Math.min(doc.length(), i + 3))));
+		}
+
+		assertThat(cards).containsExactly(
+				"{\"target\":\"Milch\",\"forbidden\":[\"Kuh\",\"{Glas}\"]}",
+				"{\"target\":\"Sag \\\"Hallo\\\"\",\"forbidden\":[\"]\"]}");
+	}
+}
@@ -0,0 +1,47 @@
+package ch.guessthat.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfanityMatcherTests {
+
+	@Test
+	void findsPatternsAnywhereInText() {
+		var matcher = ProfanityMatcher.build(List.of("he", "she", "his", "hers"));
+
+		assertThat(matcher.containsAny("ushers")).isTrue();
+		assertThat(matcher.containsAny("xhisx")).isTrue();
+		assertThat(matcher.containsAny("hxsxe")).isFalse();
+		assertThat(matcher.containsAny("")).isFalse();
+	}
+
+	@Test
+	void emptyPatternMatchesEverything() {
+		assertThat(ProfanityMatcher.matchingEverything().containsAny("milch")).isTrue();
+	}
+
+	@Test
+	void agreesWithAlternationRegexOnSeedCorpusAndList() {
+		List<String> patterns = TextFixtures.profanityList();
+		Pattern regex = TextFixtures.alternationRegex(patterns);
+		var matcher = ProfanityMatcher.build(patterns.stream().map(TextNorm::normLower).distinct().toList());
+
+		List<String> inputs = new ArrayList<>(TextFixtures.seedWords());
+		for (String p : patterns) {
+			inputs.add(p);
+			inputs.add("vor" + p + "nach");
+		}
+
+		for (String input : inputs) {
+			String normalized = TextNorm.normLower(input);
+			assertThat(matcher.containsAny(normalized))
+					.as(input)
+					.isEqualTo(regex.matcher(normalized).find());
+		}
+	}
+}
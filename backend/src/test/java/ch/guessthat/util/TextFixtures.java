@@ -0,0 +1,57 @@
+package ch.guessthat.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static ch.guessthat.util.ConfigLoader.loadConfig;
+
+/** Text corpora and former implementations, shared by the tests and {@code src/jmh}. */
+public final class TextFixtures {
+
+	private TextFixtures() {}
+
+	/** Quoted strings of the V1 seed migration. */
+	public static List<String> seedWords() {
+		Matcher quoted = Pattern.compile("\"([^\"]+)\"").matcher(load("db/migration", "V1__init_cards.sql"));
+		List<String> out = new ArrayList<>();
+		while (quoted.find()) out.add(quoted.group(1));
+		return out;
+	}
+
+	/** Entries of the bundled profanity list. */
+	public static List<String> profanityList() {
+		return Arrays.stream(load("", "filter_profanity_list.txt").split("\\R"))
+				.map(String::trim)
+				.filter(s -> !s.isEmpty())
+				.toList();
+	}
+
+	/** The former profanity check: one alternation over the whole list. */
+	public static Pattern alternationRegex(List<String> patterns) {
+		return Pattern.compile(patterns.stream().collect(Collectors.joining("|", "(", ")")), Pattern.CASE_INSENSITIVE);
+	}
+
+	/** {@link TextNorm#normLower} before the fast path. */
+	public static String legacyNormLower(String text) {
+		if (text == null) return "";
+		var normalizedText = Normalizer.normalize(text, Normalizer.Form.NFKC);
+		var noMarks = normalizedText.replaceAll("\\p{M}+", "");
+		return noMarks.toLowerCase(Locale.ROOT).trim();
+	}
+
+	private static String load(String dir, String file) {
+		try {
+			return loadConfig(dir, file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
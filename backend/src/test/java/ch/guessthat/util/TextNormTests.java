@@ -0,0 +1,47 @@
+package ch.guessthat.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static ch.guessthat.util.TextFixtures.legacyNormLower;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextNormTests {
+
+	@AfterEach
+	void resetMemo() {
+		TextNorm.setMemoCapacity(0);
+	}
+
+	@Test
+	void matchesReferenceImplementationOnSeedCorpus() {
+		for (String word : TextFixtures.seedWords()) {
+			assertThat(TextNorm.normLower(word)).as(word).isEqualTo(legacyNormLower(word));
+			assertThat(TextNorm.normLower(" " + word.toUpperCase(Locale.ROOT) + "\t")).isEqualTo(legacyNormLower(" " + word.toUpperCase(Locale.ROOT) + "\t"));
+		}
+	}
+
+	@Test
+	void matchesReferenceImplementationForEveryLatinChar() {
+		List<String> inputs = new ArrayList<>();
+		for (char c = 0; c < 0x370; c++) {
+			inputs.add(String.valueOf(c));
+			inputs.add("a" + c + "Z");
+			inputs.add(c + "é");
+		}
+		TextNorm.setMemoCapacity(16);
+		for (String input : inputs) {
+			assertThat(TextNorm.normLower(input)).as("U+%04X", (int) input.charAt(0)).isEqualTo(legacyNormLower(input));
+		}
+	}
+
+	@Test
+	void returnsNormalizedTextWithoutCopying() {
+		String text = "küche";
+		assertThat(TextNorm.normLower(text)).isSameAs(text);
+	}
+}
@@ -0,0 +1,37 @@
+package ch.guessthat.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidsTests {
+
+	@Test
+	void generatesVersion7WithTimestampPrefix() {
+		UUID id = Uuids.v7(0x0190_1234_5678L);
+
+		assertThat(id.version()).isEqualTo(7);
+		assertThat(id.variant()).isEqualTo(2);
+		assertThat(id.toString()).startsWith("01901234-5678-7");
+	}
+
+	@Test
+	void sortsByCreationTimeAsBinary() {
+		byte[] earlier = Uuids.toBytes(Uuids.v7(1_700_000_000_000L));
+		byte[] later = Uuids.toBytes(Uuids.v7(1_700_000_000_001L));
+
+		assertThat(Arrays.compareUnsigned(earlier, later)).isNegative();
+	}
+
+	@Test
+	void roundTripsThroughBinaryForm() {
+		UUID id = UUID.fromString("05ad81d1-b644-4531-8d22-9dc1881939f2");
+
+		assertThat(Uuids.toBytes(id)).hasSize(16).startsWith((byte) 0x05, (byte) 0xad);
+		assertThat(Uuids.fromBytes(Uuids.toBytes(id))).isEqualTo(id);
+		assertThat(Uuids.toBytes(id.toString())).isEqualTo(Uuids.toBytes(id));
+	}
+}
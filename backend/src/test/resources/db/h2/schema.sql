@@ -0,0 +1,36 @@
+-- H2 (MODE=MySQL) equivalent of the Flyway migrations, for benchmarks and tests that run without MySQL.
+CREATE TABLE IF NOT EXISTS cards (
+    id          BINARY(16)    NOT NULL,
+    language    VARCHAR(16)   NOT NULL,
+    category    VARCHAR(32)   NOT NULL,
+    difficulty  VARCHAR(16)   NOT NULL,
+    target      VARCHAR(255)  NOT NULL,
+    norm_target VARCHAR(255)  NOT NULL,
+    rand_key    DOUBLE        NOT NULL DEFAULT 0,
+    created_at  TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    deck_ordinal INT          NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_cards_lang_norm UNIQUE (language, norm_target)
+);
+
+CREATE INDEX IF NOT EXISTS idx_cards_deck_rand ON cards (language, category, difficulty, rand_key);
+CREATE INDEX IF NOT EXISTS idx_cards_deck_created ON cards (language, category, difficulty, created_at, id);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_cards_deck_ordinal ON cards (language, category, difficulty, deck_ordinal);
+
+CREATE TABLE IF NOT EXISTS card_forbidden (
+    card_id     BINARY(16)   NOT NULL,
+    word        VARCHAR(255) NOT NULL,
+    CONSTRAINT fk_card_forbidden FOREIGN KEY (card_id) REFERENCES cards(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_card_forbidden_card_id ON card_forbidden (card_id);
+
+CREATE TABLE IF NOT EXISTS deck_versions (
+    language    VARCHAR(16)  NOT NULL,
+    category    VARCHAR(32)  NOT NULL,
+    difficulty  VARCHAR(16)  NOT NULL,
+    version     BIGINT       NOT NULL,
+    card_count  BIGINT       NOT NULL,
+    updated_at  TIMESTAMP(3) NOT NULL,
+    PRIMARY KEY (language, category, difficulty)
+);